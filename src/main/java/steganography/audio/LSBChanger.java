@@ -22,14 +22,17 @@ import steganography.audio.exception.AudioCapacityException;
 import steganography.audio.overlays.AudioOverlay;
 import steganography.exceptions.UnknownStegFormatException;
 
-import java.util.NoSuchElementException;
-
 /**
  * This class can read from and write to the least significant bits of a byte array.
  * @author Richard Rudek
  */
 public class LSBChanger {
 
+    /**
+     * Number of carrier bytes read from (or written to) the overlay at once
+     */
+    private static final int BATCH_SIZE = 8192;
+
     private final AudioOverlay overlay;
 
     public LSBChanger(AudioOverlay overlay) {
@@ -45,32 +48,41 @@ public class LSBChanger {
      * @throws AudioCapacityException if the message does not fit into the overlays bytes
      */
     public byte[] encode(byte[] message) throws AudioCapacityException {
+        embed(message);
+        return this.overlay.getBytes();
+    }
+
+    /**
+     * Takes the byte array message and writes the message into the least significant bits of the carrier
+     * using the overlay given in the constructor, without returning the carrier (e.g. because it is a file
+     * mapped into memory).<br>
+     * If the message is null, nothing will change.
+     * @param message bytes to encode
+     * @throws AudioCapacityException if the message does not fit into the overlays bytes
+     */
+    public void embed(byte[] message) throws AudioCapacityException {
         if (message != null) {
-            if (message.length * 8 > this.overlay.available())
+            if (message.length * 8L > this.overlay.available())
                 throw new AudioCapacityException("Message (requires " + message.length +
                         " bytes) does not fit into overlay (" + (this.overlay.available() / 8) + " bytes available).");
 
-            byte[][] messageBytesAndBits = BitByteConverter.byteToBits(message);
-
-            try {
-                for (byte[] messageBytes : messageBytesAndBits) {
-                    for (byte messageBit : messageBytes) {
-                        // get the next byte
-                        byte currentByte = this.overlay.next();
-                        // get the bit representation and change the last bit
-                        byte[] currentBits = BitByteConverter.byteToBits(currentByte);
-                        if (currentBits[7] != messageBit)
-                            currentBits[7] = messageBit;
-                        // set the changed byte in this overlay
-                        this.overlay.setByte(BitByteConverter.bitsToByte(currentBits));
-                    }
+            byte[] carrierBytes = new byte[BATCH_SIZE];
+            int bitCount = message.length * 8;
+            int bit = 0;
+
+            while (bit < bitCount) {
+                int read = this.overlay.next(carrierBytes, 0, Math.min(BATCH_SIZE, bitCount - bit));
+                if (read == 0)
+                    throw new AudioCapacityException("No more bytes left.");
+
+                for (int i = 0; i < read; i++, bit++) {
+                    // most significant bit of each message byte first
+                    int messageBit = (message[bit >> 3] >>> (7 - (bit & 7))) & 1;
+                    carrierBytes[i] = (byte) ((carrierBytes[i] & ~1) | messageBit);
                 }
-            } catch (NoSuchElementException e) {
-                throw new AudioCapacityException(e.getMessage());
+                this.overlay.setBytes(carrierBytes, 0, read);
             }
         }
-
-        return this.overlay.getBytes();
     }
 
     /**
@@ -84,23 +96,24 @@ public class LSBChanger {
         if (length < 1)
             throw new IllegalArgumentException("Can't read message of length less than 1 (length was " + length + ").");
 
-        if (length * 8 > this.overlay.available()) {
+        if (length * 8L > this.overlay.available()) {
             throw new UnknownStegFormatException("Message could not be read from byte array because only " +
                     (this.overlay.available() / 8) + " bytes are available in the MP3 file, but " + length +
                     " bytes are required to get the whole message.");
         }
 
         byte[] message = new byte[length];
-        byte[] tempByte = new byte[8];
-        int tempByteCounter = 0;
-        int messageCounter = 0;
-
-        for (int i = 0; i < length * 8; i++) {
-            byte[] currentBits = BitByteConverter.byteToBits(this.overlay.next());
-            tempByte[tempByteCounter++] = currentBits[7];
-            if (tempByteCounter == 8) {
-                message[messageCounter++] = BitByteConverter.bitsToByte(tempByte);
-                tempByteCounter = 0;
+        byte[] carrierBytes = new byte[BATCH_SIZE];
+        int bitCount = length * 8;
+        int bit = 0;
+
+        while (bit < bitCount) {
+            int read = this.overlay.next(carrierBytes, 0, Math.min(BATCH_SIZE, bitCount - bit));
+            if (read == 0)
+                throw new UnknownStegFormatException("No more bytes left.");
+
+            for (int i = 0; i < read; i++, bit++) {
+                message[bit >> 3] |= (carrierBytes[i] & 1) << (7 - (bit & 7));
             }
         }
 
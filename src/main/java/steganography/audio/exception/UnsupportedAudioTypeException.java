@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.exception;
+
+import steganography.exceptions.UnsupportedMediaTypeException;
+
+/**
+ * Thrown if an operation was attempted on an audio type (e.g. a WAV file with compressed samples)
+ * it doesn't support.
+ */
+public class UnsupportedAudioTypeException extends UnsupportedMediaTypeException {
+
+    public UnsupportedAudioTypeException() {
+        super();
+    }
+
+    public UnsupportedAudioTypeException(String message) {
+        super(message);
+    }
+}
@@ -18,8 +18,6 @@
 
 package steganography.audio.mp3;
 
-import java.util.NoSuchElementException;
-
 /**
  * This is a look up class for bit rates used in mp3 files.
  * @author Richard Rudek
@@ -27,162 +25,49 @@ import java.util.NoSuchElementException;
 class BitRateLookUp {
 
     /**
-     * Tries to find the Bitrate of an MP3 frame.
-     * @param mpegVersion MPEG Version of the frame<br>
-     *                    MPEG Version 1 = 1<br>
-     *                    MPEG Version 2 or 2.5 = 2<br>
-     * @param layer Layer of the frame<br>
-     *              Layer 1 = 1<br>
-     *              Layer 2 = 2<br>
-     *              Layer 3 = 3<br>
-     * @param index Bitrate index of the frame (should be between 0 and 14 inclusive)<br>
-     * @return int - Bitrate according to MPEG Version, Layer and Bitrate index of the frame
-     * @throws IllegalArgumentException if any of the parameters are invalid
-     * @throws NoSuchElementException if there is no value for the given parameters
+     * Value for bitrate indices that are free (0) or bad (15)
      */
-    static int getValueForBitrate(int mpegVersion, int layer, int index)
-            throws IllegalArgumentException, NoSuchElementException {
-        // check if parameters are valid
-        if (mpegVersion < 1 || mpegVersion > 2)
-            throw new IllegalArgumentException("MPEG version " + mpegVersion + " not supported");
-
-        if (layer < 1 || layer > 3)
-            throw new IllegalArgumentException("Layer " + layer + " not supported");
-
-        if (index < 0 || index > 14)
-            throw new IllegalArgumentException("Invalid Bitrate index (value was " + index + ")");
-
-        if (index == 0)
-            throw new NoSuchElementException("Free Bitrate is not supported (value was " + index + ")");
-
-        // find bitrate for given layer and mpeg version
-        int bitrate = -1;
-
-        if (mpegVersion == 1 && layer == 1)
-            bitrate = getValueForV1AndL1(index);
+    static final int INVALID = -1;
+
+    private static final int[] V1_L1 =
+            {INVALID, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, INVALID};
+    private static final int[] V1_L2 =
+            {INVALID, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, INVALID};
+    private static final int[] V1_L3 =
+            {INVALID, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, INVALID};
+    private static final int[] V2_L1 =
+            {INVALID, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, INVALID};
+    private static final int[] V2_L2_L3 =
+            {INVALID, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, INVALID};
 
-        if (mpegVersion == 1 && layer == 2)
-            bitrate = getValueForV1AndL2(index);
-
-        if (mpegVersion == 1 && layer == 3)
-            bitrate = getValueForV1AndL3(index);
-
-        if (mpegVersion == 2 && layer == 1)
-            bitrate = getValueForV2AndL1(index);
-
-        if (mpegVersion == 2 && (layer == 2 || layer == 3))
-            bitrate = getValueForV2AndL2OrL3(index);
-
-        // if bitrate is still not assigned, something went wrong
-        if (bitrate == -1)
-            throw new NoSuchElementException("Could not resolve Bitrate for MPEG version " + mpegVersion
-                    + ", Layer " + layer + " and index " + index + ". This is most likely a bug.");
-
-        return bitrate;
-    }
-
-    private static int getValueForV1AndL1(int index) {
-        int bitrate = -1;
-        switch (index) {
-            case 1: bitrate = 32; break;
-            case 2: bitrate = 64; break;
-            case 3: bitrate = 96; break;
-            case 4: bitrate = 128; break;
-            case 5: bitrate = 160; break;
-            case 6: bitrate = 192; break;
-            case 7: bitrate = 224; break;
-            case 8: bitrate = 256; break;
-            case 9: bitrate = 288; break;
-            case 10: bitrate = 320; break;
-            case 11: bitrate = 352; break;
-            case 12: bitrate = 384; break;
-            case 13: bitrate = 416; break;
-            case 14: bitrate = 448; break;
-        }
-        return bitrate;
-    }
-
-    private static int getValueForV1AndL2(int index) {
-        int bitrate = -1;
-        switch (index) {
-            case 1: bitrate = 32; break;
-            case 2: bitrate = 48; break;
-            case 3: bitrate = 56; break;
-            case 4: bitrate = 64; break;
-            case 5: bitrate = 80; break;
-            case 6: bitrate = 96; break;
-            case 7: bitrate = 112; break;
-            case 8: bitrate = 128; break;
-            case 9: bitrate = 160; break;
-            case 10: bitrate = 192; break;
-            case 11: bitrate = 224; break;
-            case 12: bitrate = 256; break;
-            case 13: bitrate = 320; break;
-            case 14: bitrate = 384; break;
-        }
-        return bitrate;
-    }
-
-    private static int getValueForV1AndL3(int index) {
-        int bitrate = -1;
-        switch (index) {
-            case 1: bitrate = 32; break;
-            case 2: bitrate = 40; break;
-            case 3: bitrate = 48; break;
-            case 4: bitrate = 56; break;
-            case 5: bitrate = 64; break;
-            case 6: bitrate = 80; break;
-            case 7: bitrate = 96; break;
-            case 8: bitrate = 112; break;
-            case 9: bitrate = 128; break;
-            case 10: bitrate = 160; break;
-            case 11: bitrate = 192; break;
-            case 12: bitrate = 224; break;
-            case 13: bitrate = 256; break;
-            case 14: bitrate = 320; break;
-        }
-        return bitrate;
-    }
+    /**
+     * Bitrates in kbps, indexed by [MPEG version bits][layer bits][bitrate index] as they appear in the header.
+     * Reserved versions and layers are null.
+     */
+    private static final int[][][] BITRATES = {
+            // 00 = MPEG Version 2.5, layers: reserved, III, II, I
+            {null, V2_L2_L3, V2_L2_L3, V2_L1},
+            // 01 = reserved
+            null,
+            // 10 = MPEG Version 2
+            {null, V2_L2_L3, V2_L2_L3, V2_L1},
+            // 11 = MPEG Version 1
+            {null, V1_L3, V1_L2, V1_L1}
+    };
 
-    private static int getValueForV2AndL1(int index) {
-        int bitrate = -1;
-        switch (index) {
-            case 1: bitrate = 32; break;
-            case 2: bitrate = 48; break;
-            case 3: bitrate = 56; break;
-            case 4: bitrate = 64; break;
-            case 5: bitrate = 80; break;
-            case 6: bitrate = 96; break;
-            case 7: bitrate = 112; break;
-            case 8: bitrate = 128; break;
-            case 9: bitrate = 144; break;
-            case 10: bitrate = 160; break;
-            case 11: bitrate = 176; break;
-            case 12: bitrate = 192; break;
-            case 13: bitrate = 224; break;
-            case 14: bitrate = 256; break;
-        }
-        return bitrate;
-    }
+    /**
+     * Looks up the Bitrate of an MP3 frame. Free bitrates are not supported.
+     * @param versionBits MPEG Version bits of the frame header (0 - 3)
+     * @param layerBits Layer bits of the frame header (0 - 3)
+     * @param index Bitrate index of the frame header (0 - 15)
+     * @return int - Bitrate in kbps according to MPEG Version, Layer and Bitrate index of the frame<br>
+     *         INVALID, if there is no value for the given parameters
+     */
+    static int getValueForBitrate(int versionBits, int layerBits, int index) {
+        int[][] layers = BITRATES[versionBits & 0b11];
+        if (layers == null || layers[layerBits & 0b11] == null)
+            return INVALID;
 
-    private static int getValueForV2AndL2OrL3(int index) {
-        int bitrate = -1;
-        switch (index) {
-            case 1: bitrate = 8; break;
-            case 2: bitrate = 16; break;
-            case 3: bitrate = 24; break;
-            case 4: bitrate = 32; break;
-            case 5: bitrate = 40; break;
-            case 6: bitrate = 48; break;
-            case 7: bitrate = 56; break;
-            case 8: bitrate = 64; break;
-            case 9: bitrate = 80; break;
-            case 10: bitrate = 96; break;
-            case 11: bitrate = 112; break;
-            case 12: bitrate = 128; break;
-            case 13: bitrate = 144; break;
-            case 14: bitrate = 160; break;
-        }
-        return bitrate;
+        return layers[layerBits & 0b11][index & 0b1111];
     }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class reads MP3 frame headers. A header is handled as a single int (big endian), its fields are read
+ * using shifts and masks.
+ * <pre>
+ * AAAAAAAA AAABBCCD EEEEFFGH IIJJKLMM
+ * A = frame sync     E = bitrate index        I = channel mode
+ * B = MPEG version   F = sampling rate index  J = mode extension
+ * C = layer          G = padding              K = copyright
+ * D = protection     H = private              L = original
+ *                                             M = emphasis
+ * </pre>
+ */
+final class FrameHeader {
+    /**
+     * The length of an MP3 header in bytes
+     */
+    static final int HEADER_LENGTH = 4;
+    /**
+     * The length of the checksum following an MP3 header in bytes
+     */
+    static final int CHECKSUM_LENGTH = 2;
+    /**
+     * Value returned for invalid or unsupported headers
+     */
+    static final int INVALID = -1;
+
+    private static final int SYNC_MASK = 0xFFE00000;
+
+    private FrameHeader() {}
+
+    /**
+     * Reads 4 bytes as a header.
+     * @param bytes buffer containing the header
+     * @param position position of the first byte of the header
+     * @return the header as an int
+     */
+    static int read(ByteBuffer bytes, int position) {
+        return (bytes.get(position) & 0xFF) << 24 |
+                (bytes.get(position + 1) & 0xFF) << 16 |
+                (bytes.get(position + 2) & 0xFF) << 8 |
+                (bytes.get(position + 3) & 0xFF);
+    }
+
+    /**
+     * Checks if the given bytes can be the start of a header (11 bits frame sync).
+     * @param first first byte
+     * @param second second byte
+     * @return true, if all 11 bits of the frame sync are set
+     */
+    static boolean isSync(byte first, byte second) {
+        return first == -1 && (second & 0xE0) == 0xE0;
+    }
+
+    // 00 = v2.5, 01 = reserved, 10 = v2, 11 = v1
+    static int getVersionBits(int header) {
+        return (header >>> 19) & 0b11;
+    }
+
+    // 00 = reserved, 01 = Layer III, 10 = Layer II, 11 = Layer I
+    static int getLayerBits(int header) {
+        return (header >>> 17) & 0b11;
+    }
+
+    // 0 = protected by CRC, 1 = not protected
+    static boolean isCrcProtected(int header) {
+        return ((header >>> 16) & 1) == 0;
+    }
+
+    // 0000 = free, 1111 = bad
+    static int getBitrateIndex(int header) {
+        return (header >>> 12) & 0b1111;
+    }
+
+    // 11 = reserved
+    static int getSamplingRateIndex(int header) {
+        return (header >>> 10) & 0b11;
+    }
+
+    static boolean isPadded(int header) {
+        return ((header >>> 9) & 1) == 1;
+    }
+
+    // 00 = stereo, 01 = joint stereo, 10 = dual, 11 = mono
+    static int getChannelMode(int header) {
+        return (header >>> 6) & 0b11;
+    }
+
+    // 00 = none, 01 = 50/15, 10 = reserved, 11 = ccit j.17
+    static int getEmphasis(int header) {
+        return header & 0b11;
+    }
+
+    /**
+     * Checks if two headers belong to the same stream, meaning they have the same
+     * MPEG version, layer and sampling rate.
+     * @param header first header
+     * @param other second header
+     * @return true, if both are headers of the same stream
+     */
+    static boolean isSameStream(int header, int other) {
+        // sync, version, layer and sampling rate
+        int mask = 0xFFFE0C00;
+        return (header & SYNC_MASK) == SYNC_MASK && (header & mask) == (other & mask);
+    }
+
+    /**
+     * Returns the length of the side information following the header (and checksum) of Layer III frames.
+     * @param header the header as an int
+     * @return length in bytes,<br>
+     *         0 for other layers
+     */
+    static int getSideInfoLength(int header) {
+        if (getLayerBits(header) != 0b01)
+            return 0;
+
+        boolean mono = getChannelMode(header) == 0b11;
+        if (getVersionBits(header) == 0b11)
+            return mono ? 17 : 32;
+        return mono ? 9 : 17;
+    }
+
+    /**
+     * Returns the length of the frame described by the header, including the header.
+     * Headers with reserved or bad values, free bitrate or a CRC checksum are not supported.
+     * @param header the header as an int
+     * @return length of the frame in bytes,<br>
+     *         INVALID if the header is not valid or not supported
+     */
+    static int getFrameLength(int header) {
+        return getFrameLength(header, false);
+    }
+
+    /**
+     * Returns the length of the frame described by the header, including the header.
+     * Headers with reserved or bad values or free bitrate are not supported.
+     * @param header the header as an int
+     * @param crcAccepted true, if frames with a CRC checksum are supported
+     * @return length of the frame in bytes,<br>
+     *         INVALID if the header is not valid or not supported
+     */
+    static int getFrameLength(int header, boolean crcAccepted) {
+        if ((header & SYNC_MASK) != SYNC_MASK)
+            return INVALID;
+
+        int version = getVersionBits(header);
+        int layer = getLayerBits(header);
+        if (version == 0b01 || layer == 0b00)
+            return INVALID;
+
+        // checksums are not supported by the algorithm, unless only main data is changed
+        if (isCrcProtected(header) && !crcAccepted)
+            return INVALID;
+
+        if (getEmphasis(header) == 0b10)
+            return INVALID;
+
+        int bitrate = BitRateLookUp.getValueForBitrate(version, layer, getBitrateIndex(header));
+        int samplingRate = SamplingRateLookUp.getValueForSamplingRate(version, getSamplingRateIndex(header));
+        if (bitrate == BitRateLookUp.INVALID || samplingRate == SamplingRateLookUp.INVALID)
+            return INVALID;
+
+        int padding = isPadded(header) ? 1 : 0;
+        switch (layer) {
+            case 0b11:
+                // Layer I: length = (12 * bitrate / samplingRate + padding) * 4, padding slot is 4 bytes
+                return (12 * bitrate * 1000 / samplingRate + padding) * 4;
+            case 0b10:
+                // Layer II: length = 144 * bitrate / samplingRate + padding
+                return 144 * bitrate * 1000 / samplingRate + padding;
+            default:
+                // Layer III: MPEG 2 and 2.5 frames hold half the samples of MPEG 1 frames
+                return (version == 0b11 ? 144 : 72) * bitrate * 1000 / samplingRate + padding;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The search for MP3 frames in the bytes [0, length) of a buffer, done step by step.</p>
+ * <p>ID3v2 tags are skipped using their size. After a frame was found, the search continues directly at its end,
+ * so only the bytes between frames that do not belong to a frame are searched for a frame sync.
+ * A frame found by searching for a frame sync is accepted if its header is valid and it is followed by
+ * the end of the file, a header of the same stream or a tag. A frame directly following an accepted frame
+ * only needs a valid header.</p>
+ */
+class FrameSearch {
+
+    protected final ByteBuffer bytes;
+    protected final int length;
+    /**
+     * true, if frames with a CRC checksum are accepted
+     */
+    private final boolean crcAccepted;
+
+    /**
+     * The header of the frame accepted by the last step
+     */
+    protected int stepHeader;
+    /**
+     * The length of the frame accepted by the last step, 0 if no frame was accepted
+     */
+    protected int stepFrameLength;
+    /**
+     * true, if the position returned by the last step is the end of an accepted frame
+     */
+    protected boolean stepInSync;
+
+    /**
+     * @param bytes buffer holding the file
+     * @param length length of the file
+     * @param crcAccepted true, if frames with a CRC checksum are accepted
+     */
+    FrameSearch(ByteBuffer bytes, int length, boolean crcAccepted) {
+        this.bytes = bytes;
+        this.length = length;
+        this.crcAccepted = crcAccepted;
+    }
+
+    /**
+     * Does one step of the search at the given position. If a frame is accepted at the position, its header and
+     * length are available in stepHeader and stepFrameLength until the next step.
+     * @param position position of the step
+     * @param inSync true, if position is the end of an accepted frame
+     * @return position of the next step
+     */
+    int step(int position, boolean inSync) {
+        this.stepFrameLength = 0;
+
+        int tagEnd = getId3v2End(position);
+        if (tagEnd != position) {
+            this.stepInSync = false;
+            return tagEnd;
+        }
+
+        int header = FrameHeader.read(this.bytes, position);
+        int frameLength = FrameHeader.getFrameLength(header, this.crcAccepted);
+
+        boolean accepted = frameLength != FrameHeader.INVALID && (inSync ?
+                position + frameLength <= this.length :
+                isFrameEnd(header, position + frameLength));
+        if (!accepted) {
+            // lost sync, search the next frame sync
+            this.stepInSync = false;
+            return searchSync(position + 1);
+        }
+
+        this.stepHeader = header;
+        this.stepFrameLength = frameLength;
+        // the next frame starts directly after this one
+        this.stepInSync = true;
+        return position + frameLength;
+    }
+
+    /**
+     * Searches the next frame sync.
+     * @param searchStart Position from which the next sync is searched
+     * @return position of the sync,<br>
+     *         the end of the file, if there is none
+     */
+    private int searchSync(int searchStart) {
+        int sync = findNextSync(searchStart);
+        return sync != -1 ? sync : this.length;
+    }
+
+    /**
+     * Returns the position of the first data byte of a frame (after header and checksum).
+     * @param header the header of the frame
+     * @param position position of the frame
+     * @return position of the first data byte
+     */
+    static int getDataStart(int header, int position) {
+        return position + FrameHeader.HEADER_LENGTH +
+                (FrameHeader.isCrcProtected(header) ? FrameHeader.CHECKSUM_LENGTH : 0);
+    }
+
+    /**
+     * Checks if the given position can be the end of a frame with the given header. This is the case if
+     * the position is the end of the file (or too close to it to hold another header),
+     * a header of the same stream (same MPEG version, layer and sampling rate) or a tag (ID3v1, ID3v2 or APE).
+     * @param header the header of the frame
+     * @param end position after the last byte of the frame
+     * @return true, if the frame can end at the given position
+     */
+    private boolean isFrameEnd(int header, int end) {
+        if (end > this.length)
+            return false;
+        if (end + FrameHeader.HEADER_LENGTH > this.length)
+            return true;
+
+        if (FrameHeader.isSameStream(header, FrameHeader.read(this.bytes, end)))
+            return true;
+
+        return startsWith(end, "TAG") || startsWith(end, "ID3") || startsWith(end, "APETAGEX");
+    }
+
+    /**
+     * Returns the end of an ID3v2 tag at the given position, using the (syncsafe) size in its header.
+     * @param position position of the tag
+     * @return position after the tag (or the end of the file, if it ends before),<br>
+     *         the given position if there is no ID3v2 tag
+     */
+    private int getId3v2End(int position) {
+        ByteBuffer bytes = this.bytes;
+        // "ID3" + version (2 bytes) + flags + size (4 bytes, 7 bits each)
+        if (position + 10 > this.length || !startsWith(position, "ID3"))
+            return position;
+        if (bytes.get(position + 3) == -1 || bytes.get(position + 4) == -1)
+            return position;
+
+        int size = 0;
+        for (int i = position + 6; i < position + 10; i++) {
+            if ((bytes.get(i) & 0x80) != 0)
+                return position;
+            size = (size << 7) | bytes.get(i);
+        }
+
+        // a footer (ID3v2.4) has the same length as the header
+        boolean hasFooter = (bytes.get(position + 5) & 0x10) != 0;
+        long end = (long) position + 10 + size + (hasFooter ? 10 : 0);
+        return (int) Math.min(end, this.length);
+    }
+
+    /**
+     * Checks if the frame at the given position holds a Xing, Info or VBRI header.
+     * These frames contain information about the whole file (used for seeking) instead of audio.
+     * @param header the header of the frame
+     * @param position position of the frame
+     * @return true, if the frame holds VBR information
+     */
+    boolean isVbrInfoFrame(int header, int position) {
+        // Xing and Info follow the side information, VBRI always follows 32 bytes after the header
+        int xingPosition = getDataStart(header, position) + FrameHeader.getSideInfoLength(header);
+        return startsWith(xingPosition, "Xing") || startsWith(xingPosition, "Info") ||
+                startsWith(position + FrameHeader.HEADER_LENGTH + 32, "VBRI");
+    }
+
+    /**
+     * Checks if the bytes at the given position are the given ASCII characters.
+     * @param position position in the MP3 byte array
+     * @param ascii characters to compare
+     * @return true, if the bytes match the characters
+     */
+    private boolean startsWith(int position, String ascii) {
+        if (position < 0 || position + ascii.length() > this.length)
+            return false;
+
+        for (int i = 0; i < ascii.length(); i++) {
+            if (this.bytes.get(position + i) != ascii.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next position of a frame sync (11 set bits) starting at byte searchStart.
+     * @param searchStart Position in the byte array from which the next sync is searched
+     * @return position of the sync,<br>
+     *         -1 if there is none
+     */
+    private int findNextSync(int searchStart) {
+        ByteBuffer bytes = this.bytes;
+        for (int i = searchStart; i < this.length - 1; i++) {
+            // find a byte were all bits are set to 1
+            // in java: 1111 1111 = -1
+            if (bytes.get(i) != -1)
+                continue;
+
+            if (FrameHeader.isSync(bytes.get(i), bytes.get(i + 1)))
+                return i;
+
+            // this and next bytes are no frame, so skip the next byte as well
+            i++;
+        }
+        return -1;
+    }
+}
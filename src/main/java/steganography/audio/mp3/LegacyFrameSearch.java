@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+/**
+ * <p>The search for MP3 frames of the first versions of MP3Steganography, kept to find the same modifiable bytes
+ * in files encoded by them (see {@link MP3File.ScanMode#LEGACY}).</p>
+ * <p>A frame sync is only accepted as a frame once the next frame sync has been found, so the last frame of a file
+ * is never found. Tags are not skipped, and the search for the next frame continues at the position the previous
+ * search started at plus the length of the frame found, not at the end of the frame. Therefore the same frame can
+ * be found twice, e.g. if the first frame follows a tag.</p>
+ * <p>The modifiable bytes are the ones the original loop over the frames visited (see {@link #setRanges()}):
+ * the data bytes of every frame and the bytes between frames, or all bytes up to the end of the file, once a frame
+ * starts before the end of the previous one.</p>
+ * <p>The bytes are read using absolute positions, in increasing order apart from the header of a frame.
+ * They can be held completely or read while searching (see {@link #hasByte(int)}).</p>
+ */
+abstract class LegacyFrameSearch {
+
+    /**
+     * The position the next search starts at
+     */
+    private int searchStart = 0;
+
+    /**
+     * The frame found by the last call of nextFrame()
+     */
+    protected int frameStart = -1;
+    protected int frameLength = -1;
+    protected boolean frameCrcProtected = false;
+
+    /**
+     * The position of the next byte visited by the loop over the modifiable bytes, -1 before the first frame
+     */
+    private int rangePosition = -1;
+    /**
+     * true, if all bytes from the start of the last data range to the end of the file are modifiable
+     */
+    private boolean toEnd = false;
+
+    /**
+     * The modifiable bytes [gapStart, gapEnd) before the header and [dataStart, dataEnd) after the header of the frame
+     * found by the last call of nextFrame(). The ranges can be empty.
+     */
+    protected int gapStart;
+    protected int gapEnd;
+    protected int dataStart;
+    protected int dataEnd;
+
+    /**
+     * Checks if the file has a byte at the given position, reading more bytes if needed.
+     * @param position position in the file
+     * @return true, if the file is longer than position
+     */
+    protected abstract boolean hasByte(int position);
+
+    /**
+     * Returns the byte at the given position, hasByte(position) has been called before.
+     * @param position position in the file
+     * @return the byte at position
+     */
+    protected abstract byte getByte(int position);
+
+    /**
+     * Returns the position the next search starts at. Bytes before it are not read again.
+     * @return position in the file
+     */
+    int getSearchStart() {
+        return this.searchStart;
+    }
+
+    /**
+     * Searches the next frame and stores it in frameStart, frameLength and frameCrcProtected
+     * and its modifiable bytes in gapStart, gapEnd, dataStart and dataEnd.
+     * @return true, if a frame was found<br>
+     *         false, if there is none
+     */
+    boolean nextFrame() {
+        int start = -1;
+        int length = -1;
+        // like the frame object of the original, the flag is kept between candidates
+        boolean crcProtected = false;
+
+        for (int i = this.searchStart; hasByte(i); i++) {
+            if (getByte(i) != -1)
+                continue;
+            if (!hasByte(i + 1))
+                break;
+            if (!FrameHeader.isSync(getByte(i), getByte(i + 1))) {
+                // this and next bytes are no frame, so skip the next byte as well
+                i++;
+                continue;
+            }
+
+            if (start == -1) {
+                start = i;
+                continue;
+            }
+            // the distance to the next sync is the length, unless the header of the frame sets it
+            length = i - start;
+
+            if (hasByte(start + 5)) {
+                int header = (getByte(start) & 0xFF) << 24 | (getByte(start + 1) & 0xFF) << 16 |
+                        (getByte(start + 2) & 0xFF) << 8 | (getByte(start + 3) & 0xFF);
+                if (FrameHeader.getVersionBits(header) != 0b01 && FrameHeader.getLayerBits(header) != 0b00) {
+                    crcProtected = FrameHeader.isCrcProtected(header);
+                    int headerLength = crcProtected ? FrameHeader.INVALID : getFrameLength(header);
+                    if (headerLength != FrameHeader.INVALID) {
+                        length = headerLength;
+                        if (hasByte(start + length - 1))
+                            break;
+                    }
+                }
+            }
+            // not valid, the sync is the next candidate
+            start = i;
+        }
+
+        // without a valid candidate, the last one is used as it is
+        if (start == -1 || length == -1)
+            return false;
+
+        this.frameStart = start;
+        this.frameLength = length;
+        this.frameCrcProtected = crcProtected;
+        this.searchStart += length;
+        setRanges();
+        return true;
+    }
+
+    /**
+     * Checks if all bytes from dataStart to the end of the file are modifiable. The frames after the last one
+     * found do not change the modifiable bytes then.
+     * @return true, if dataEnd is the end of the file
+     */
+    boolean isModifiableToEnd() {
+        return this.toEnd;
+    }
+
+    /**
+     * Sets the modifiable ranges of the frame found, following the loop of the original: it visits the bytes
+     * from the start of the first frame on and skips the header whenever it visits the first byte of the current
+     * frame. After visiting the last byte of the current frame, it continues with the next one.
+     */
+    private void setRanges() {
+        if (this.rangePosition == -1)
+            this.rangePosition = this.frameStart;
+
+        int frameEnd = this.frameStart + this.frameLength;
+        this.gapStart = this.rangePosition;
+        this.gapEnd = Math.max(this.rangePosition, this.frameStart);
+        this.rangePosition = this.gapEnd;
+
+        // skip header (and checksum), unless the frame starts before the end of the last one
+        if (this.rangePosition == this.frameStart)
+            this.rangePosition += FrameHeader.HEADER_LENGTH +
+                    (this.frameCrcProtected ? FrameHeader.CHECKSUM_LENGTH : 0);
+
+        this.dataStart = this.rangePosition;
+        if (this.rangePosition < frameEnd) {
+            this.dataEnd = frameEnd;
+            this.rangePosition = frameEnd;
+        } else {
+            // the last byte of the frame is never visited, so the loop continues until the end of the file
+            this.dataEnd = Integer.MAX_VALUE;
+            this.toEnd = true;
+        }
+    }
+
+    /**
+     * Returns the length of a frame like the original validation did. Unlike FrameHeader.getFrameLength(int),
+     * the emphasis value 11 is invalid instead of 10, MPEG 2 and 2.5 Layer III frames have the length
+     * of MPEG 1 frames and the padding of Layer I frames is 16 bytes.
+     * @param header the header as an int
+     * @return length of the frame in bytes,<br>
+     *         INVALID if the header was not valid
+     */
+    private static int getFrameLength(int header) {
+        if (FrameHeader.getEmphasis(header) == 0b11)
+            return FrameHeader.INVALID;
+
+        int version = FrameHeader.getVersionBits(header);
+        int layer = FrameHeader.getLayerBits(header);
+        int bitrate = BitRateLookUp.getValueForBitrate(version, layer, FrameHeader.getBitrateIndex(header));
+        int samplingRate = SamplingRateLookUp.getValueForSamplingRate(version, FrameHeader.getSamplingRateIndex(header));
+        if (bitrate == BitRateLookUp.INVALID || samplingRate == SamplingRateLookUp.INVALID)
+            return FrameHeader.INVALID;
+
+        if (layer == 0b11)
+            return (12 * bitrate * 1000 / samplingRate + (FrameHeader.isPadded(header) ? 4 : 0)) * 4;
+        return 144 * bitrate * 1000 / samplingRate + (FrameHeader.isPadded(header) ? 1 : 0);
+    }
+}
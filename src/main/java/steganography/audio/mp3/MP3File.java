@@ -18,11 +18,16 @@
 
 package steganography.audio.mp3;
 
-import steganography.audio.BitByteConverter;
-
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class represents an MP3 file.
@@ -30,9 +35,53 @@ import java.util.NoSuchElementException;
  */
 public class MP3File {
     /**
-     * The byte array containing an MP3 file
+     * The ways to search an MP3 file for its frames, deciding which bytes are modifiable
+     */
+    public enum ScanMode {
+        /**
+         * The frames and modifiable bytes of the first versions of MP3Steganography
+         * (see {@link LegacyFrameSearch}). The last frame is not found and tags are searched like audio data,
+         * bytes between frames are modifiable. Used by the overlays of these versions
+         * (MP3Overlays.SEQUENCE_OVERLAY and SHUFFLE_OVERLAY), so files encoded by them can still be decoded.
+         */
+        LEGACY,
+        /**
+         * All frames are found, ID3v2 tags and bytes between frames are skipped (see {@link FrameSearch}).
+         * The data bytes of every frame (after header and checksum) are modifiable,
+         * apart from the data of a leading Xing, Info or VBRI frame.
+         */
+        FRAME_DATA,
+        /**
+         * The frames of FRAME_DATA, but only their main data (after the side information) is modifiable.
+         * Frames with a CRC checksum are accepted as well, as it only covers the header and the side information.
+         */
+        MAIN_DATA
+    }
+
+    /**
+     * Files of at least this size are searched for frames in parallel by findAllFrames()
+     */
+    private static final int PARALLEL_SCAN_THRESHOLD = 8 * 1024 * 1024;
+
+    /**
+     * Minimum number of bytes searched for frames by one task
+     */
+    private static final int MIN_CHUNK_LENGTH = 1024 * 1024;
+
+    /**
+     * The buffer containing an MP3 file (from index 0 to its limit)
+     */
+    private final ByteBuffer mp3Buffer;
+
+    /**
+     * The length of the MP3 file in bytes
      */
-    private final byte[] mp3Bytes;
+    private final int length;
+
+    /**
+     * The way the frames are searched
+     */
+    private final ScanMode scanMode;
 
     /**
      * The number of frames
@@ -40,25 +89,112 @@ public class MP3File {
     private int frameCount = -1;
 
     /**
-     * The list containing every Frame in this MP3File
+     * The position of the first byte (header) of every frame in this MP3File
+     */
+    private int[] frameStarts = null;
+
+    /**
+     * The length of every frame in this MP3File, including the header
+     */
+    private int[] frameLengths = null;
+
+    /**
+     * The position of the first data byte (after header and checksum, and side information if
+     * the scan mode is MAIN_DATA) of every frame in this MP3File
+     */
+    private int[] frameDataStarts = null;
+
+    /**
+     * The number of ranges of modifiable bytes
+     */
+    private int rangeCount = 0;
+
+    /**
+     * The first position and the position after the last one of every range of modifiable bytes, in the order
+     * they appear in the MP3 byte array. Usually the data bytes of one frame, ranges can be empty.
+     */
+    private int[] rangeStarts = null;
+    private int[] rangeEnds = null;
+
+    /**
+     * The number of modifiable bytes in all ranges before each range.
+     * Has one more entry than there are ranges, the last one being the number of all modifiable bytes.
      */
-    private List<Frame> frames = null;
+    private int[] modifiableOffsets = null;
 
 
     /**
-     * This constructs an MP3File object with the given bytes.
+     * This constructs an MP3File object with the given bytes, searched using ScanMode.LEGACY.
      * @param mp3Bytes the byte array containing the bytes of an MP3 file
      */
     public MP3File(byte[] mp3Bytes) {
-        this.mp3Bytes = mp3Bytes;
+        this(ByteBuffer.wrap(mp3Bytes));
+    }
+
+    /**
+     * This constructs an MP3File object with the given buffer (e.g. a file mapped into memory using
+     * {@link java.nio.channels.FileChannel#map}). The bytes from index 0 to the limit of the buffer are used,
+     * its position is ignored. Modifications of the bytes are written directly to the buffer.
+     * The buffer is searched using ScanMode.LEGACY.
+     * @param mp3Buffer the buffer containing the bytes of an MP3 file
+     */
+    public MP3File(ByteBuffer mp3Buffer) {
+        this(mp3Buffer, ScanMode.LEGACY);
+    }
+
+    /**
+     * This constructs an MP3File object with the given buffer, like {@link #MP3File(ByteBuffer)},
+     * which is searched using the given scan mode.
+     * @param mp3Buffer the buffer containing the bytes of an MP3 file
+     * @param scanMode the way to search the frames
+     */
+    public MP3File(ByteBuffer mp3Buffer, ScanMode scanMode) {
+        this.mp3Buffer = mp3Buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.length = mp3Buffer.limit();
+        this.scanMode = scanMode;
+    }
+
+    /**
+     * Returns the way the frames are searched.
+     * @return the scan mode
+     */
+    public ScanMode getScanMode() {
+        return this.scanMode;
+    }
+
+    /**
+     * Returns true, if only the main data of the frames is modifiable.
+     * @return true, if the scan mode is MAIN_DATA
+     */
+    public boolean isMainDataOnly() {
+        return this.scanMode == ScanMode.MAIN_DATA;
     }
 
     /**
      * Returns the byte array this class was given.
      * @return the byte array this class was given
+     * @throws UnsupportedOperationException if this MP3File was created with a buffer that is not backed by an array
      */
-    public byte[] getMP3Bytes() {
-        return this.mp3Bytes;
+    public byte[] getMP3Bytes() throws UnsupportedOperationException {
+        if (!this.mp3Buffer.hasArray())
+            throw new UnsupportedOperationException("MP3File is not backed by a byte array");
+        return this.mp3Buffer.array();
+    }
+
+    /**
+     * Returns the buffer containing the MP3 file. Changes to the buffer are visible in this MP3File and vice versa.
+     * @return the buffer containing the MP3 file
+     */
+    public ByteBuffer getMP3Buffer() {
+        return this.mp3Buffer;
+    }
+
+    /**
+     * Returns the length of the MP3 file.
+     * @return length in bytes
+     */
+    public int getLength() {
+        return this.length;
     }
 
     /**
@@ -71,378 +207,480 @@ public class MP3File {
     }
 
     /**
-     * Returns the information of each frame in this MP3 file. The header is included in each frame.
-     * @return - null, if findAllFrames() has not been called or there are no frames<br>
-     *         - List containing Frames
+     * Returns the position of the first byte (header) of the given frame.
+     * @param frame index of the frame
+     * @return position of the frame in the MP3 byte array
+     * @throws IllegalArgumentException if there are no frames
      */
-    public List<Frame> getFrames() {
-        return this.frames;
+    public int getFrameStart(int frame) throws IllegalArgumentException {
+        checkFrames();
+        return this.frameStarts[frame];
     }
 
     /**
-     * Returns the positions of bytes that are safe to modify.
-     * @return List of Integers - all positions of modifiable bytes in this MP3 file
+     * Returns the length of the given frame. The header is included.
+     * @param frame index of the frame
+     * @return length of the frame in bytes
+     * @throws IllegalArgumentException if there are no frames
+     */
+    public int getFrameLength(int frame) throws IllegalArgumentException {
+        checkFrames();
+        return this.frameLengths[frame];
+    }
+
+    /**
+     * Returns the number of bytes that are safe to modify.
+     * @return number of modifiable bytes in this MP3 file
      * @throws IllegalArgumentException if there are no frames.<br>
      *                                  This can happen when findAllFrames has not been called prior to this method
      *                                  or this file is not an MP3 file.
      */
-    public List<Integer> getModifiablePositions() throws IllegalArgumentException {
-        if (this.frames == null)
-            throw new IllegalArgumentException("There are no frames. Therefore, there are no modifiable bytes. " +
-                    "Make sure findAllFrames() has been called!");
-
-        List<Integer> result = new ArrayList<>();
-
-        int frameCounter = 0;
-        Frame currentFrame = this.frames.get(frameCounter);
+    public int getModifiableCount() throws IllegalArgumentException {
+        checkFrames();
+        return this.modifiableOffsets[this.rangeCount];
+    }
 
-        // loop through mp3 bytes starting at first frame to find data bytes
-        for (int i = currentFrame.getStartingByte(); i < this.mp3Bytes.length; i++) {
-            // get the next frame
-            currentFrame = this.frames.get(frameCounter);
+    /**
+     * Returns the position of the modifiable byte with the given index. Modifiable bytes are the data bytes of
+     * every frame (without header and checksum, see {@link ScanMode}), counted in the order they appear
+     * in the MP3 byte array.
+     * @param index index of the modifiable byte (0 to getModifiableCount() - 1)
+     * @return position of the modifiable byte in the MP3 byte array
+     * @throws IllegalArgumentException if there are no frames
+     * @throws IndexOutOfBoundsException if index is negative or not less than getModifiableCount()
+     */
+    public int getModifiablePosition(int index) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkFrames();
+        if (index < 0 || index >= this.modifiableOffsets[this.rangeCount])
+            throw new IndexOutOfBoundsException("Index " + index + " is not a modifiable byte (" +
+                    this.modifiableOffsets[this.rangeCount] + " modifiable bytes)");
+
+        int range = findRangeOfModifiable(index);
+        return this.rangeStarts[range] + (index - this.modifiableOffsets[range]);
+    }
 
-            // skip header (and checksum)
-            if (i == currentFrame.getStartingByte()) {
-                i += Frame.HEADER_LENGTH;
-                i += currentFrame.isCrcProtected() ? Frame.CHECKSUM_LENGTH : 0;
+    /**
+     * Writes the positions of count consecutive modifiable bytes into positions, starting with the modifiable byte
+     * with the given index. Same as calling getModifiablePosition() for every index, but faster.
+     * @param fromIndex index of the first modifiable byte
+     * @param positions array to write the positions to, starting at 0
+     * @param count number of positions
+     * @throws IllegalArgumentException if there are no frames
+     * @throws IndexOutOfBoundsException if the indices are not in range of the modifiable bytes
+     */
+    public void getModifiablePositions(int fromIndex, int[] positions, int count)
+            throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkFrames();
+        if (count <= 0)
+            return;
+        if (fromIndex < 0 || fromIndex + count > this.modifiableOffsets[this.rangeCount])
+            throw new IndexOutOfBoundsException("Indices " + fromIndex + " to " + (fromIndex + count - 1) +
+                    " are not all modifiable bytes (" + this.modifiableOffsets[this.rangeCount] + " modifiable bytes)");
+
+        int range = findRangeOfModifiable(fromIndex);
+        int position = this.rangeStarts[range] + (fromIndex - this.modifiableOffsets[range]);
+        int rangeEnd = this.rangeEnds[range];
+
+        for (int i = 0; i < count; i++) {
+            // continue with the next range(s)
+            while (position >= rangeEnd) {
+                range++;
+                position = this.rangeStarts[range];
+                rangeEnd = this.rangeEnds[range];
             }
+            positions[i] = position++;
+        }
+    }
 
-            // add the data byte to the list of modifiable bytes
-            result.add(i);
+    /**
+     * Finds the range containing the modifiable byte with the given index.
+     * @param index index of the modifiable byte
+     * @return index of the range
+     */
+    private int findRangeOfModifiable(int index) {
+        // find the last range whose offset is not greater than index
+        int range = Arrays.binarySearch(this.modifiableOffsets, 0, this.rangeCount, index);
+        if (range < 0)
+            return -range - 2;
+
+        // empty ranges have the same offset as the following range
+        while (range + 1 < this.rangeCount && this.modifiableOffsets[range + 1] == index)
+            range++;
+        return range;
+    }
 
-            // look at the next frame when loop has gone through every data byte of the current frame
-            if (i == (currentFrame.getStartingByte() + currentFrame.getLength() - 1))
-                frameCounter++;
+    /**
+     * Returns the position of the first data byte of the given frame (after header and checksum,
+     * and side information if the scan mode is MAIN_DATA). Which bytes are modifiable depends on the scan mode.
+     * @param frame index of the frame
+     * @return position in the MP3 byte array
+     * @throws IllegalArgumentException if there are no frames
+     */
+    public int getFrameDataStart(int frame) throws IllegalArgumentException {
+        checkFrames();
+        return this.frameDataStarts[frame];
+    }
 
-            // stop if loop went through every frame
-            if (frameCounter == this.frameCount) // TODO this is buggy, skips final frame - index out of bound zu beginn der schleife im "letzten" durchlauf
-                break;
-        }
+    /**
+     * Returns the position after the last data byte of the given frame.
+     * @param frame index of the frame
+     * @return position in the MP3 byte array (exclusive)
+     * @throws IllegalArgumentException if there are no frames
+     */
+    public int getFrameDataEnd(int frame) throws IllegalArgumentException {
+        checkFrames();
+        return this.frameStarts[frame] + this.frameLengths[frame];
+    }
 
-        System.out.println("[INFO] Found " + result.size() + " modifiable Positions in the MP3 byte array.");
-        return result;
+    private void checkFrames() throws IllegalArgumentException {
+        if (this.frameStarts == null)
+            throw new IllegalArgumentException("There are no frames. Therefore, there are no modifiable bytes. " +
+                    "Make sure findAllFrames() has been called!");
     }
 
     /**
-     * Attempts to find {@link Frame frames} by searching for MP3 frame headers and
-     * saves their information in this MP3File.
+     * Attempts to find frames by searching for MP3 frame headers and
+     * saves their information in this MP3File.<br>
+     * Files of at least 8 MB are searched in parallel using all available processors,
+     * unless the scan mode is LEGACY.
      * @return true, if frames have been found<br>
      *         false, if there are none
      */
     public boolean findAllFrames() {
-        System.out.println("[INFO] Starting the search for the frames in the MP3 byte array.");
-        if (this.frames == null) {
-            this.frames = new ArrayList<>();
-            this.frameCount = findFrames();
-        }
-        System.out.println("[INFO] " + this.frameCount + " frames found.");
+        return findAllFrames(this.length >= PARALLEL_SCAN_THRESHOLD ? Runtime.getRuntime().availableProcessors() : 1);
+    }
 
-        if (this.frameCount == 0) {
-            this.frames = null;
+    /**
+     * Attempts to find frames by searching for MP3 frame headers using up to nThreads threads and
+     * saves their information in this MP3File. The frames found are the same for any number of threads.
+     * The search of the scan mode LEGACY always uses one thread, as every step depends on where the previous
+     * one started. So the overlays using LEGACY (MP3Overlays.SEQUENCE_OVERLAY and the default SHUFFLE_OVERLAY)
+     * never search in parallel.
+     * @param nThreads max number of threads to use
+     * @return true, if frames have been found<br>
+     *         false, if there are none
+     */
+    public boolean findAllFrames(int nThreads) {
+        if (this.frameStarts == null && this.frameCount != 0 && this.scanMode == ScanMode.LEGACY) {
+            this.frameCount = findLegacyFrames();
+        } else if (this.frameStarts == null && this.frameCount != 0) {
+            int chunkCount = (int) Math.min(nThreads * 2L, this.length / MIN_CHUNK_LENGTH);
+            FrameScan scan = nThreads <= 1 || chunkCount <= 1 ? findFrames() : findFrames(nThreads, chunkCount);
+            this.frameCount = saveFrames(scan);
         }
 
-        return this.frames != null;
+        return this.frameStarts != null;
     }
 
     /**
-     * Searches the MP3 byte array for its headers and saves them.
-     * @return int - Number of headers found
+     * Searches the MP3 byte array for its headers from start to end (see {@link FrameScan#run}).
+     * @return the frames found
      */
-    private int findFrames() {
-        int lastPosition = 0;
-        int framesFound = 0;
+    private FrameScan findFrames() {
+        FrameScan scan = new FrameScan(this.length, false);
+        scan.run(0, false, this.length, null);
+        return scan;
+    }
 
-        while (lastPosition != -1) {
-            try {
-                // find the next frame
-                Frame frame = findNextFrame(lastPosition);
-
-                // if there is another frame, save the previous
-                // it can only be saved now, because the length has to be determined
-                this.frames.add(frame);
-
-                // set counting variables accordingly
-                framesFound++;
-                lastPosition += frame.getLength();
-            } catch (NoSuchElementException e) {
-                // set counting variables accordingly
-                lastPosition = -1;
+    /**
+     * <p>Searches the MP3 byte array for its headers in parallel and returns the same frames as findFrames().</p>
+     * <p>The file is split into chunkCount chunks. Every chunk is searched concurrently as if a search started
+     * at its first byte and every step of the search is recorded. The search is deterministic, so as soon as the
+     * search of the whole file reaches a step that was recorded for a chunk, it would find the same frames
+     * as recorded for the rest of this chunk. Stitching the chunks together therefore only has to search
+     * the bytes from the end of the previous chunk to the first recorded step (usually within the first frame
+     * of a chunk).</p>
+     * @param nThreads max number of threads to use
+     * @param chunkCount number of chunks
+     * @return the frames found
+     */
+    private FrameScan findFrames(int nThreads, int chunkCount) {
+        int[] chunkEnds = new int[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunkEnds[i] = (int) ((long) this.length * (i + 1) / chunkCount);
+        }
+
+        ExecutorService taskExecutor = Executors.newFixedThreadPool(Math.min(nThreads, chunkCount));
+        List<Callable<FrameScan>> taskList = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            int chunkStart = i == 0 ? 0 : chunkEnds[i - 1];
+            int chunkEnd = chunkEnds[i];
+            taskList.add(() -> {
+                FrameScan chunk = new FrameScan(chunkEnd - chunkStart, true);
+                chunk.run(chunkStart, false, chunkEnd, null);
+                return chunk;
+            });
+        }
+
+        FrameScan[] chunks = new FrameScan[chunkCount];
+        try {
+            List<Future<FrameScan>> futureList = taskExecutor.invokeAll(taskList);
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = futureList.get(i).get();
             }
+        } catch (InterruptedException e) {
+            // the result does not depend on the number of threads
+            Thread.currentThread().interrupt();
+            return findFrames();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            taskExecutor.shutdown();
         }
 
-        return framesFound;
+        // stitch the chunks together
+        FrameScan scan = new FrameScan(this.length, false);
+        for (int i = 0; i < chunkCount; i++) {
+            // a chunk might be skipped completely (e.g. by a large ID3v2 tag)
+            if (scan.exitPosition < chunkEnds[i])
+                scan.run(scan.exitPosition, scan.exitInSync, chunkEnds[i], chunks[i]);
+        }
+        return scan;
     }
 
     /**
-     * Find the next frame starting at byte searchStart.
-     * @param searchStart Position in the byte array from which the next frame is searched
-     * @return {@link Frame} - Object containing information about the header and frame
-     * @throws NoSuchElementException if there is no header after searchStart
+     * Saves the positions and lengths of the frames found. The data bytes of every frame are modifiable,
+     * apart from the data of a Xing, Info or VBRI frame.
+     * @param scan the frames found
+     * @return int - Number of frames
      */
-    private Frame findNextFrame(int searchStart) throws NoSuchElementException {
-        Frame frame = new Frame();
-
-        for (int i = searchStart; i < this.mp3Bytes.length; i++) {
-            // find a byte were all bits are set to 1
-            // in java: 1111 1111 = -1
-            if (this.mp3Bytes[i] != -1) {
-                continue;
-            }
-
-            // frame candidate found, check next bits
-            byte[] bitsOfNextByte = BitByteConverter.byteToBits(this.mp3Bytes[i+1]);
-            if (bitsOfNextByte[0] == 0 || bitsOfNextByte[1] == 0 || bitsOfNextByte[2] == 0) {
-                // this and next bytes are no frame, so skip loop
-                i++;
-                continue;
+    private int saveFrames(FrameScan scan) {
+        int framesFound = scan.frameCount;
+        if (framesFound > 0) {
+            this.frameStarts = Arrays.copyOf(scan.starts, framesFound);
+            this.frameLengths = Arrays.copyOf(scan.lengths, framesFound);
+            this.frameDataStarts = Arrays.copyOf(scan.dataStarts, framesFound);
+
+            this.rangeCount = framesFound;
+            this.rangeStarts = this.frameDataStarts.clone();
+            this.rangeEnds = new int[framesFound];
+            for (int i = 0; i < framesFound; i++) {
+                this.rangeEnds[i] = Math.max(this.rangeStarts[i], this.frameStarts[i] + this.frameLengths[i]);
             }
 
-            // frame (probably) found
-            if (frame.getStartingByte() == -1) {
-                // starting position is not set --> set it
-                frame.setStartingByte(i);
-                continue;
-            } else {
-                // starting position has been set --> set length
-                frame.setLength(i - frame.getStartingByte());
-            }
+            // the first frame might hold VBR information instead of audio
+            int header = FrameHeader.read(this.mp3Buffer, this.frameStarts[0]);
+            if (scan.isVbrInfoFrame(header, this.frameStarts[0]))
+                this.rangeStarts[0] = this.rangeEnds[0];
 
-            try {
-                if (!validateFrame(frame).isValid()) {
-                    throw new IllegalArgumentException("Not valid");
-                }
-                // frame found, break loop
-                break;
-            } catch (IllegalArgumentException e) {
-                // frame is not valid, reset starting position
-                frame.setStartingByte(i);
-            }
+            saveModifiableOffsets();
         }
 
-        if (frame.getStartingByte() == -1 || frame.getLength() == -1) {
-            // no frame found --> throw exception
-            throw new NoSuchElementException("Could not find a frame after position " + searchStart);
-        }
-        return frame;
+        return framesFound;
     }
 
     /**
-     * Checks if the given frame is valid.
-     * If it is, this method corrects the frames fields
-     * @param frame MP3 frame to validate
-     * @return {@link Frame} - The given Frame with adjusted fields
-     * @throws IllegalArgumentException if the frame is not supported or invalid
+     * Searches the MP3 byte array for its frames like the first versions of MP3Steganography did
+     * (see {@link LegacyFrameSearch}) and saves them. Their modifiable bytes include the bytes between the frames.
+     * @return int - Number of frames
      */
-    private Frame validateFrame(Frame frame) throws IllegalArgumentException {
-        frame.setValid(true);
-
-        // get the bits, that have to be checked
-        byte[] bytesToValidate = new byte[6];
-        System.arraycopy(this.mp3Bytes, frame.getStartingByte(), bytesToValidate, 0, 6);
-        byte[][] bitsToValidate = BitByteConverter.byteToBits(bytesToValidate);
-
-        // --------------------------------------------------------------------------------------------------------- \\
-        // ------------------------------------------- VALIDATE HEADER --------------------------------------------- \\
-        // --------------------------------------------------------------------------------------------------------- \\
+    private int findLegacyFrames() {
+        ByteBuffer bytes = this.mp3Buffer.duplicate();
+        LegacyFrameSearch search = new LegacyFrameSearch() {
+            @Override
+            protected boolean hasByte(int position) {
+                return position < MP3File.this.length;
+            }
 
-        // check for frame synchronizer
-        // 11111111 111***** ******** ********
-        // 11x 1 --> first byte = -1 and first 3 bits of second byte are 1
-        if (bytesToValidate[0] != -1 || bitsToValidate[1][0] != 1 ||
-                bitsToValidate[1][1] != 1 || bitsToValidate[1][2] != 1) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("Frame sync invalid");
-        }
+            @Override
+            protected byte getByte(int position) {
+                return bytes.get(position);
+            }
+        };
 
-        // MPEG version id
-        // ******** ***##*** ******** ********
-        // 00 = v2.5
-        // 01 = reserved/invalid
-        // 10 = v2
-        // 11 = v1
-        if (bitsToValidate[1][3] == 0 && bitsToValidate[1][4] == 1) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("MPEG version is invalid");
+        int framesFound = 0;
+        // initial guess for 128 kbps at 44100 Hz, grows if needed
+        int capacity = Math.max(16, this.length / 417 + 1);
+        int[] starts = new int[capacity];
+        int[] lengths = new int[capacity];
+        int[] dataStarts = new int[capacity];
+        int[] ranges = new int[capacity * 2];
+        int rangesFound = 0;
+
+        while (search.nextFrame()) {
+            if (framesFound == starts.length) {
+                starts = Arrays.copyOf(starts, framesFound * 2);
+                lengths = Arrays.copyOf(lengths, framesFound * 2);
+                dataStarts = Arrays.copyOf(dataStarts, framesFound * 2);
+            }
+            starts[framesFound] = search.frameStart;
+            lengths[framesFound] = search.frameLength;
+            dataStarts[framesFound] = search.frameStart + FrameHeader.HEADER_LENGTH +
+                    (search.frameCrcProtected ? FrameHeader.CHECKSUM_LENGTH : 0);
+            framesFound++;
+
+            // two ranges per frame, the bytes after the last one and those after the header
+            if (rangesFound + 4 > ranges.length)
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            ranges[rangesFound++] = Math.min(search.gapStart, this.length);
+            ranges[rangesFound++] = Math.min(search.gapEnd, this.length);
+            ranges[rangesFound++] = Math.min(search.dataStart, this.length);
+            ranges[rangesFound++] = Math.min(search.dataEnd, this.length);
+            if (search.isModifiableToEnd())
+                break;
         }
 
-        float mpegVersion = -1f;
-        if (bitsToValidate[1][3] == 0 && bitsToValidate[1][4] == 0) {
-            mpegVersion = 2.5f;
-        }
-        if (bitsToValidate[1][3] == 1 && bitsToValidate[1][4] == 0) {
-            mpegVersion = 2f;
-        }
-        if (bitsToValidate[1][3] == 1 && bitsToValidate[1][4] == 1) {
-            mpegVersion = 1f;
+        if (framesFound > 0) {
+            this.frameStarts = Arrays.copyOf(starts, framesFound);
+            this.frameLengths = Arrays.copyOf(lengths, framesFound);
+            this.frameDataStarts = Arrays.copyOf(dataStarts, framesFound);
+
+            this.rangeCount = rangesFound / 2;
+            this.rangeStarts = new int[this.rangeCount];
+            this.rangeEnds = new int[this.rangeCount];
+            for (int i = 0; i < this.rangeCount; i++) {
+                this.rangeStarts[i] = ranges[2 * i];
+                this.rangeEnds[i] = ranges[2 * i + 1];
+            }
+            saveModifiableOffsets();
         }
 
-        // Layer
-        // ******** *****##* ******** ********
-        // 00 = reserved/invalid
-        // 01 = Layer III
-        // 10 = Layer II
-        // 11 = Layer I
-        if (bitsToValidate[1][5] == 0 && bitsToValidate[1][6] == 0) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("Layer is invalid");
-        }
+        return framesFound;
+    }
 
-        int layer = -1;
-        if (bitsToValidate[1][5] == 0 && bitsToValidate[1][6] == 1) {
-            layer = 3;
-        }
-        if (bitsToValidate[1][5] == 1 && bitsToValidate[1][6] == 0) {
-            layer = 2;
-        }
-        if (bitsToValidate[1][5] == 1 && bitsToValidate[1][6] == 1) {
-            layer = 1;
+    /**
+     * Counts the modifiable bytes before every range.
+     */
+    private void saveModifiableOffsets() {
+        this.modifiableOffsets = new int[this.rangeCount + 1];
+        for (int i = 0; i < this.rangeCount; i++) {
+            this.modifiableOffsets[i + 1] = this.modifiableOffsets[i] + (this.rangeEnds[i] - this.rangeStarts[i]);
         }
+    }
 
-        // CRC
-        // ******** *******# ******** ********
-        // 0 = protected by CRC
-        // 1 = not protected
-        frame.setCrcProtected(bitsToValidate[1][7] == 0);
-        if (frame.isCrcProtected()) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("CRC16 is not supported");
+    /**
+     * The search for the headers in (a part of) the MP3 byte array and the frames found by it.
+     * Every search uses its own view of the buffer, so several searches can run concurrently.
+     */
+    private class FrameScan extends FrameSearch {
+        private int[] starts;
+        private int[] lengths;
+        private int[] dataStarts;
+        private int frameCount = 0;
+
+        /**
+         * If true, every step of the search (position and whether it is the end of an accepted frame)
+         * is recorded together with the number of frames found before it
+         */
+        private final boolean recordSteps;
+        private int[] stepPositions;
+        private boolean[] stepsInSync;
+        private int[] stepFrameCounts;
+        private int stepCount = 0;
+
+        /**
+         * The position and state at which the search stopped
+         */
+        private int exitPosition = 0;
+        private boolean exitInSync = false;
+
+        /**
+         * @param searchLength number of bytes that will (probably) be searched, used to estimate the number of frames
+         * @param recordSteps true, if the steps of the search should be recorded
+         */
+        private FrameScan(int searchLength, boolean recordSteps) {
+            super(mp3Buffer.duplicate(), MP3File.this.length, scanMode == ScanMode.MAIN_DATA);
+            // initial guess for 128 kbps at 44100 Hz, grows if needed
+            int capacity = Math.max(16, searchLength / 417 + 1);
+            this.starts = new int[capacity];
+            this.lengths = new int[capacity];
+            this.dataStarts = new int[capacity];
+            this.recordSteps = recordSteps;
+            if (recordSteps) {
+                this.stepPositions = new int[capacity];
+                this.stepsInSync = new boolean[capacity];
+                this.stepFrameCounts = new int[capacity];
+            }
         }
 
-        // bitrate
-        // ******** ******** ####**** ********
-        // 0000 = free
-        // 0001 = 32 kbps
-        // 0010 = 40 kbps
-        // 0011 = 48 kbps
-        // 0100 = 56 kbps
-        // 0101 = 64 kbps
-        // 0110 = 80 kbps
-        // 0111 = 96 kbps
-        // 1000 = 112 kbps
-        // 1001 = 128 kbps
-        // 1010 = 160 kbps
-        // 1011 = 192 kbps
-        // 1100 = 224 kbps
-        // 1101 = 256 kbps
-        // 1110 = 320 kbps
-        // 1111 = bad/invalid
-        int bitrateValue = BitByteConverter.bitsToByte(
-                new byte[] {
-                        0, 0, 0, 0,
-                        bitsToValidate[2][0], bitsToValidate[2][1], bitsToValidate[2][2], bitsToValidate[2][3]
+        /**
+         * Searches the MP3 byte array for its headers (see {@link FrameSearch}), beginning at the given position,
+         * until a position at or after end is reached.<br>
+         * If join is given and the search reaches a step recorded by join, the frames join found from there on
+         * are taken over and the search stops where join stopped.
+         * @param position position to start at
+         * @param inSync true, if position is the end of an accepted frame
+         * @param end position to stop at
+         * @param join search of the same part of the file with recorded steps, can be null
+         */
+        private void run(int position, boolean inSync, int end, FrameScan join) {
+            while (position < end && position + FrameHeader.HEADER_LENGTH <= this.length) {
+                if (join != null) {
+                    int step = join.findStep(position, inSync);
+                    if (step != -1) {
+                        takeOver(join, step);
+                        return;
+                    }
                 }
-        );
-
-        // sampling rate
-        // ******** ******** ****##** ********
-        // 00 = 44100 Hz
-        // 01 = 48000 Hz
-        // 10 = 32000 Hz
-        // 11 = reserved/invalid
-        int samplingRateValue = BitByteConverter.bitsToByte(
-                new byte[] {
-                        0, 0, 0, 0, 0, 0, bitsToValidate[2][4], bitsToValidate[2][5]
+                if (this.recordSteps)
+                    recordStep(position, inSync);
+
+                int next = step(position, inSync);
+                if (this.stepFrameLength > 0) {
+                    // save the frame, skipping header (and checksum) for the data
+                    int dataStart = getDataStart(this.stepHeader, position);
+                    if (scanMode == ScanMode.MAIN_DATA)
+                        dataStart += FrameHeader.getSideInfoLength(this.stepHeader);
+                    addFrame(position, this.stepFrameLength, dataStart);
                 }
-        );
-
-        // padding
-        // ******** ******** ******#* ********
-        // 0 = frame is not padded
-        // 1 = frame is padded
-        frame.setPadded(bitsToValidate[2][6] == 1);
-
-        // private bit
-        // ******** ******** *******# ********
-        // can be used freely - can be safely ignored
-
-        // channel
-        // ******** ******** ******** ##******
-        // 00 = stereo
-        // 01 = joint stereo
-        // 10 = dual
-        // 11 = mono
-        // can be safely ignored
-
-        // mode extension
-        // ******** ******** ******** **##****
-        // is only relevant if channel is joint stereo
-        //
-        // bits | Intensity Stereo  | MS Stereo
-        // -----|-------------------|------------
-        // 00   | off               | off
-        // 01   | on                | off
-        // 10   | off               | on
-        // 11   | on                | on
-        //
-        // can be safely ignored
-
-        // copyright
-        // ******** ******** ******** ****#***
-        // 0 = audio is not copyrighted
-        // 1 = audio is copyrighted
-        // can be safely ignored
-
-        // original
-        // ******** ******** ******** *****#**
-        // 0 = copy
-        // 1 = original media
-        // can be safely ignored
-
-        // emphasis
-        // ******** ******** ******** ******##
-        // 00 = none
-        // 01 = 50/15
-        // 10 = reserved/invalid
-        // 11 = ccit j.17
-        if (bitsToValidate[3][6] == 1 && bitsToValidate[3][7] == 1) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("Emphasis is invalid");
-        }
+                position = next;
+                inSync = this.stepInSync;
+            }
 
-        // ---------------------------------------------------------------------------------------------------------- \\
-        // --------------------------------------------- LOOK UP VALUES --------------------------------------------- \\
-        // ---------------------------------------------------------------------------------------------------------- \\
+            this.exitPosition = position;
+            this.exitInSync = inSync;
+        }
 
-        try {
-            // Bitrate
-            // cast float to int for convenience
-            // (2f and 2.5f will cast to 2 since there is no difference between the versions)
-            // and look up bitrate
-            frame.setBitrate(BitRateLookUp.getValueForBitrate((int) mpegVersion, layer, bitrateValue));
-
-            // Sampling rate
-            frame.setSamplingRate(SamplingRateLookUp.getValueForSamplingRate(mpegVersion, samplingRateValue));
-        } catch (IllegalArgumentException | NoSuchElementException e) {
-            throw new IllegalArgumentException(e.getMessage());
+        private void addFrame(int start, int frameLength, int dataStart) {
+            if (this.frameCount == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.frameCount * 2);
+                this.lengths = Arrays.copyOf(this.lengths, this.frameCount * 2);
+                this.dataStarts = Arrays.copyOf(this.dataStarts, this.frameCount * 2);
+            }
+            this.starts[this.frameCount] = start;
+            this.lengths[this.frameCount] = frameLength;
+            this.dataStarts[this.frameCount] = dataStart;
+            this.frameCount++;
         }
 
-        // --------------------------------------------------------------------------------------------------------- \\
-        // ---------------------------------------- VALIDATE FRAME LENGTH ------------------------------------------ \\
-        // --------------------------------------------------------------------------------------------------------- \\
-
-        if (layer == 1) {
-            // length = (12 * (bitrate * 1000) / samplingRate + padding) * 4     // includes header
-            // bitrate * 1000 because the formula requires bits per ms
-            frame.setLength(
-                    (12 * (frame.getBitrate() * 1000) / frame.getSamplingRate() + (frame.isPadded() ? 4 : 0)) * 4
-            );
-        } else if (layer == 2 || layer == 3) {
-            // length = (144 * (bitrate * 1000) / samplingRate ) + padding       // includes header
-            frame.setLength(
-                    144 * (frame.getBitrate() * 1000) / frame.getSamplingRate() + (frame.isPadded() ? 1 : 0)
-            );
-        } else {
-            frame.setValid(false);
-            throw new IllegalArgumentException("Layer is invalid." +
-                    "This should have been thrown earlier, most likely a bug");
+        private void recordStep(int position, boolean inSync) {
+            if (this.stepCount == this.stepPositions.length) {
+                this.stepPositions = Arrays.copyOf(this.stepPositions, this.stepCount * 2);
+                this.stepsInSync = Arrays.copyOf(this.stepsInSync, this.stepCount * 2);
+                this.stepFrameCounts = Arrays.copyOf(this.stepFrameCounts, this.stepCount * 2);
+            }
+            this.stepPositions[this.stepCount] = position;
+            this.stepsInSync[this.stepCount] = inSync;
+            this.stepFrameCounts[this.stepCount] = this.frameCount;
+            this.stepCount++;
         }
 
-        // check if frame length is valid
-        if (frame.getStartingByte() + frame.getLength() > this.mp3Bytes.length) {
-            frame.setValid(false);
-            throw new IllegalArgumentException("Length is invalid");
+        /**
+         * Returns the recorded step at the given position and state. The position increases with every step,
+         * so the steps are sorted by position.
+         * @param position position of the step
+         * @param inSync state of the step
+         * @return index of the step,<br>
+         *         -1 if there is none
+         */
+        private int findStep(int position, boolean inSync) {
+            int step = Arrays.binarySearch(this.stepPositions, 0, this.stepCount, position);
+            return step >= 0 && this.stepsInSync[step] == inSync ? step : -1;
         }
 
-        return frame;
+        /**
+         * Adds the frames other found from the given step on and stops where other stopped.
+         * @param other search with recorded steps
+         * @param step index of the step in other
+         */
+        private void takeOver(FrameScan other, int step) {
+            for (int i = other.stepFrameCounts[step]; i < other.frameCount; i++) {
+                addFrame(other.starts[i], other.lengths[i], other.dataStarts[i]);
+            }
+            this.exitPosition = other.exitPosition;
+            this.exitInSync = other.exitInSync;
+        }
     }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+/**
+ * <p>Receives counters and timings of the operations of {@link MP3Steganography}, e.g. to pass them on to a
+ * metrics or logging system. Every method does nothing by default, so implementations only need to
+ * override the ones they are interested in.</p>
+ * <p>The methods are called by the thread running the operation. An instance shared by several
+ * MP3Steganography objects used concurrently has to be thread safe.</p>
+ */
+public interface MP3Metrics {
+
+    /**
+     * Does nothing. Used if no MP3Metrics are provided.
+     */
+    MP3Metrics NO_OP = new MP3Metrics() {};
+
+    /**
+     * Called after the frames of an MP3 file have been searched.
+     * @param frameCount number of frames found (0, if the file is not a valid MP3 file)
+     * @param modifiableByteCount number of data bytes in these frames
+     * @param scanNanos time the search took in nanoseconds
+     */
+    default void framesScanned(int frameCount, int modifiableByteCount, long scanNanos) {}
+
+    /**
+     * Called after a message has been hidden in an MP3 file.
+     * @param payloadLength length of the message (including the header) in bytes
+     * @param encodeNanos time encoding took in nanoseconds, excluding the search for the frames
+     */
+    default void encoded(int payloadLength, long encodeNanos) {}
+
+    /**
+     * Called after a message has been retrieved from an MP3 file.
+     * @param payloadLength length of the message in bytes
+     * @param decodeNanos time decoding took in nanoseconds, excluding the search for the frames
+     */
+    default void decoded(int payloadLength, long decodeNanos) {}
+}
@@ -23,16 +23,36 @@ import steganography.audio.LSBChanger;
 import steganography.audio.exception.AudioCapacityException;
 import steganography.audio.exception.AudioNotFoundException;
 import steganography.audio.overlays.AudioOverlay;
+import steganography.audio.overlays.MP3MainDataOverlay;
 import steganography.audio.overlays.MP3Overlays;
+import steganography.audio.overlays.MP3PermutationOverlay;
 import steganography.audio.overlays.MP3SequenceOverlay;
 import steganography.audio.overlays.MP3ShuffleOverlay;
 import steganography.exceptions.UnknownStegFormatException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
- * This class can encode and decode messages from a byte array containing an MP3 audio file using an overlay.
+ * <p>This class can encode and decode messages from a byte array containing an MP3 audio file using an overlay.</p>
+ * <p>MP3 files can also be encoded and decoded in place using their path (see {@link #encode(Path, byte[], long)}).
+ * The file is mapped into memory then, so only the overlay needs heap. MP3Overlays.SEQUENCE_OVERLAY,
+ * PERMUTATION_OVERLAY and MAIN_DATA_OVERLAY only keep a few numbers per frame, whereas SHUFFLE_OVERLAY keeps
+ * 4 bytes per data byte, which is more than the size of the file. For large files, PERMUTATION_OVERLAY is
+ * recommended.</p>
+ * <p>The default overlay SHUFFLE_OVERLAY and SEQUENCE_OVERLAY search the frames byte by byte like the first
+ * versions did, only PERMUTATION_OVERLAY and MAIN_DATA_OVERLAY use the fast frame search (see
+ * {@link MP3Overlays}). Only the fast frame search runs in parallel for large files
+ * (see {@link MP3File#findAllFrames(int)}).</p>
  * @author Richard Rudek
  */
 public class MP3Steganography implements Steganography {
@@ -49,6 +69,10 @@ public class MP3Steganography implements Steganography {
      * The overlay used to hide the message
      */
     private final MP3Overlays overlay;
+    /**
+     * Receives counters and timings of the operations
+     */
+    private final MP3Metrics metrics;
 
 
     /**
@@ -56,34 +80,75 @@ public class MP3Steganography implements Steganography {
      * @param overlay overlay to use
      */
     public MP3Steganography(MP3Overlays overlay) {
+        this(overlay, MP3Metrics.NO_OP);
+    }
+
+    /**
+     * Creates an instance using the {@link MP3Overlays MP3Overlay} provided, reporting counters and timings
+     * of its operations to the given {@link MP3Metrics}.
+     * @param overlay overlay to use
+     * @param metrics receiver of counters and timings, MP3Metrics.NO_OP if null
+     */
+    public MP3Steganography(MP3Overlays overlay, MP3Metrics metrics) {
         this.overlay = overlay;
+        this.metrics = metrics == null ? MP3Metrics.NO_OP : metrics;
     }
 
     /**
      * Creates an instance using the default overlay.<br>
-     * The default is MP3Overlays.SEQUENCE_OVERLAY.
+     * The default is MP3Overlays.SHUFFLE_OVERLAY.
      */
     public MP3Steganography() {
         this(MP3Overlays.SHUFFLE_OVERLAY);
     }
 
+    /**
+     * Creates an MP3File for the given buffer, where the bytes used by this.overlay are modifiable.
+     * The overlays of the first versions keep searching the frames the way they did, so messages hidden
+     * by these versions can still be read.
+     * @param buffer the buffer containing the mp3 file
+     * @return MP3File for the buffer
+     */
+    private MP3File createMP3File(ByteBuffer buffer) {
+        switch (this.overlay) {
+            case PERMUTATION_OVERLAY:
+                return new MP3File(buffer, MP3File.ScanMode.FRAME_DATA);
+            case MAIN_DATA_OVERLAY:
+                return new MP3File(buffer, MP3File.ScanMode.MAIN_DATA);
+            default:
+                return new MP3File(buffer, MP3File.ScanMode.LEGACY);
+        }
+    }
+
     /**
      * Returns the AudioOverlay instance depending on this.overlay .
-     * @param bytes the bytes containing the mp3 file
+     * @param mp3File the mp3 file
      * @param seed the seed to use for encoding or decoding
      * @return Instance of an {@link AudioOverlay}
      * @throws AudioNotFoundException If the given bytes either don't contain an mp3 file or
      *                                the mp3 file is not supported by this algorithm .
      */
-    private AudioOverlay getOverlay(byte[] bytes, long seed) throws AudioNotFoundException {
+    private AudioOverlay getOverlay(MP3File mp3File, long seed) throws AudioNotFoundException {
+        // search the frames here to measure it, the overlay uses the result
+        long start = System.nanoTime();
+        boolean framesFound = mp3File.findAllFrames();
+        this.metrics.framesScanned(Math.max(0, mp3File.getFrameCount()),
+                framesFound ? mp3File.getModifiableCount() : 0, System.nanoTime() - start);
+
         AudioOverlay overlay;
         switch (this.overlay) {
             case SEQUENCE_OVERLAY:
-                overlay = new MP3SequenceOverlay(bytes, seed);
+                overlay = new MP3SequenceOverlay(mp3File, seed);
+                break;
+            case PERMUTATION_OVERLAY:
+                overlay = new MP3PermutationOverlay(mp3File, seed);
+                break;
+            case MAIN_DATA_OVERLAY:
+                overlay = new MP3MainDataOverlay(mp3File, seed);
                 break;
             case SHUFFLE_OVERLAY:
             default:
-                overlay = new MP3ShuffleOverlay(bytes, seed);
+                overlay = new MP3ShuffleOverlay(mp3File, seed);
                 break;
         }
         return overlay;
@@ -121,28 +186,117 @@ public class MP3Steganography implements Steganography {
         if (carrier == null || carrier.length == 0 || payload == null || payload.length == 0)
             throw new NullPointerException("Carrier or payload are null or have length 0");
 
-        System.out.println("[INFO] Starting to encode into MP3 file.");
+        MP3File mp3File = createMP3File(ByteBuffer.wrap(carrier));
+        embed(mp3File, payload, seed);
+        return mp3File.getMP3Bytes();
+    }
 
-        // add mp3 steganography header
-        payload = addMP3SteganographyHeader(payload);
+    /**
+     * Conceals the given payload in the mp3 file at the given path using the given seed. The file is mapped
+     * into memory and changed in place, so it is never loaded onto the heap as a whole. The heap needed
+     * by SHUFFLE_OVERLAY is still larger than the file, use PERMUTATION_OVERLAY for large files.
+     * @param mp3Path path of an mp3 file, has to be readable and writable
+     * @param payload a byte array containing the message
+     * @param seed the seed to use
+     * @throws IOException If the file could not be read or written or is larger than 2 GB
+     * @throws AudioNotFoundException If the file either doesn't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If the path or payload are null or the payload has length 0
+     */
+    public void encode(Path mp3Path, byte[] payload, long seed)
+            throws IOException, AudioNotFoundException, AudioCapacityException, NullPointerException {
+        if (mp3Path == null || payload == null || payload.length == 0)
+            throw new NullPointerException("Path or payload are null or payload has length 0");
+
+        try (FileChannel channel = FileChannel.open(mp3Path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE);
+            embed(createMP3File(buffer), payload, seed);
+            buffer.force();
+        }
+    }
 
-        // check if payload fits into carrier
-        if (payload.length * 8 > carrier.length)
-            throw new AudioCapacityException("Message is longer than carrier.");
+    /**
+     * Conceals the given payload in a copy of the mp3 file carrier, which is written to output, using the
+     * default seed. The carrier is not changed.
+     * @param carrier path of an mp3 file
+     * @param output path to write the mp3 file with the hidden message to (replaced, if it exists)
+     * @param payload a byte array containing the message
+     * @throws IOException If the files could not be read or written or the carrier is larger than 2 GB
+     * @throws AudioNotFoundException If the carrier either doesn't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If a path or the payload are null or the payload has length 0
+     */
+    public void encode(Path carrier, Path output, byte[] payload)
+            throws IOException, AudioNotFoundException, AudioCapacityException, NullPointerException {
+        encode(carrier, output, payload, DEFAULT_SEED);
+    }
 
-        // start encoding
-        AudioOverlay overlay;
-        byte[] result;
-        // create overlay (also checks if the bytes are a valid mp3 file)
-        overlay = getOverlay(carrier, seed);
-        // get the encoder
-        LSBChanger lsbChanger = new LSBChanger(overlay);
-        // encode the payload
-        result = lsbChanger.encode(payload);
+    /**
+     * Conceals the given payload in a copy of the mp3 file carrier, which is written to output, using the
+     * given seed. The carrier is not changed. The copy is mapped into memory and changed in place, so
+     * neither of the files is loaded onto the heap as a whole (see {@link #encode(Path, byte[], long)} for the
+     * heap needed by the overlays). If encoding fails, output is deleted.
+     * @param carrier path of an mp3 file
+     * @param output path to write the mp3 file with the hidden message to (replaced, if it exists)
+     * @param payload a byte array containing the message
+     * @param seed the seed to use
+     * @throws IOException If the files could not be read or written or the carrier is larger than 2 GB
+     * @throws AudioNotFoundException If the carrier either doesn't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If a path or the payload are null or the payload has length 0
+     */
+    public void encode(Path carrier, Path output, byte[] payload, long seed)
+            throws IOException, AudioNotFoundException, AudioCapacityException, NullPointerException {
+        if (carrier == null || output == null)
+            throw new NullPointerException("Carrier or output path is null");
 
-        System.out.println("[INFO] Finished encoding into MP3 file.");
-        System.out.println();
-        return result;
+        Files.copy(carrier, output, StandardCopyOption.REPLACE_EXISTING);
+        boolean encoded = false;
+        try {
+            encode(output, payload, seed);
+            encoded = true;
+        } finally {
+            if (!encoded)
+                Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * <p>Conceals the given payload in the mp3 file read from carrier and writes the result to output while
+     * reading. Every frame is written as soon as it has been found, so the output starts almost immediately and
+     * usually only a small part of the file is held in memory. A large tag at the start of the file is held
+     * completely, as the frames are searched the way the first versions did.</p>
+     * <p>The data bytes can only be used in the order they are read, so this is only supported for
+     * MP3Overlays.SEQUENCE_OVERLAY. The result is the same as the one of encode(byte[], byte[]).
+     * The streams are not closed.</p>
+     * @param carrier stream to read an mp3 file from
+     * @param output stream to write the mp3 file with the hidden message to
+     * @param payload a byte array containing the message
+     * @throws IOException If the streams could not be read or written
+     * @throws AudioNotFoundException If no mp3 frames were found in the carrier.
+     *                                Everything read has been written to the output.
+     * @throws AudioCapacityException If the payload does not fit into the carrier.
+     *                                Everything read has been written to the output.
+     * @throws NullPointerException If a stream or the payload are null or the payload has length 0
+     * @throws UnsupportedOperationException If this instance does not use MP3Overlays.SEQUENCE_OVERLAY
+     */
+    public void encode(InputStream carrier, OutputStream output, byte[] payload)
+            throws IOException, AudioNotFoundException, AudioCapacityException, NullPointerException,
+            UnsupportedOperationException {
+        if (carrier == null || output == null || payload == null || payload.length == 0)
+            throw new NullPointerException("Stream or payload are null or payload has length 0");
+        if (this.overlay != MP3Overlays.SEQUENCE_OVERLAY)
+            throw new UnsupportedOperationException("Encoding streams is only supported by " +
+                    MP3Overlays.SEQUENCE_OVERLAY + ", not by " + this.overlay);
+
+        payload = addMP3SteganographyHeader(payload);
+
+        long start = System.nanoTime();
+        new MP3StreamEncoder(carrier, output).encode(payload);
+        this.metrics.encoded(payload.length, System.nanoTime() - start);
     }
 
     /**
@@ -179,12 +333,99 @@ public class MP3Steganography implements Steganography {
         if (steganographicData == null || steganographicData.length == 0)
             throw new NullPointerException("steganographicData is null or has length 0");
 
-        System.out.println("[INFO] Starting to decode from MP3 file.");
+        return decode(createMP3File(ByteBuffer.wrap(steganographicData)), seed);
+    }
 
-        byte[] message;
+    /**
+     * Attempts to retrieve a hidden message from the mp3 file at the given path using the default seed.
+     * @param mp3Path path of an mp3 file that has a message hidden within
+     * @return a byte array containing the hidden message
+     * @throws IOException If the file could not be read or is larger than 2 GB
+     * @throws UnknownStegFormatException if the message could not be read from the file.
+     * @throws AudioNotFoundException If the file either doesn't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws NullPointerException If the given path is null
+     */
+    public byte[] decode(Path mp3Path)
+            throws IOException, UnknownStegFormatException, AudioNotFoundException, NullPointerException {
+        return decode(mp3Path, DEFAULT_SEED);
+    }
 
+    /**
+     * Attempts to retrieve a hidden message from the mp3 file at the given path using the given seed.
+     * The file is mapped into memory read only, so it is never loaded onto the heap as a whole. The heap needed
+     * by SHUFFLE_OVERLAY is still larger than the file, use PERMUTATION_OVERLAY for large files.
+     * @param mp3Path path of an mp3 file that has a message hidden within
+     * @param seed the seed to use
+     * @return a byte array containing the hidden message
+     * @throws IOException If the file could not be read or is larger than 2 GB
+     * @throws UnknownStegFormatException if the message could not be read from the file.
+     * @throws AudioNotFoundException If the file either doesn't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws NullPointerException If the given path is null
+     */
+    public byte[] decode(Path mp3Path, long seed)
+            throws IOException, UnknownStegFormatException, AudioNotFoundException, NullPointerException {
+        if (mp3Path == null)
+            throw new NullPointerException("Path is null");
+
+        try (FileChannel channel = FileChannel.open(mp3Path, StandardOpenOption.READ)) {
+            return decode(createMP3File(map(channel, FileChannel.MapMode.READ_ONLY)), seed);
+        }
+    }
+
+    /**
+     * Maps the whole file of the given channel into memory.
+     * @param channel the channel of the file
+     * @param mode mode to map the file with
+     * @return the mapped file
+     * @throws IOException If the file could not be mapped or is larger than 2 GB
+     */
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("MP3 file is too large (" + size + " bytes, at most " + Integer.MAX_VALUE +
+                    " bytes are supported).");
+        return channel.map(mode, 0, size);
+    }
+
+    /**
+     * Adds the mp3 steganography header to the payload and writes both into the given mp3 file.
+     * @param mp3File the mp3 file to hide the payload in
+     * @param payload a byte array containing the message
+     * @param seed the seed to use
+     * @throws AudioNotFoundException If the mp3 file is not supported by this algorithm
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     */
+    private void embed(MP3File mp3File, byte[] payload, long seed)
+            throws AudioNotFoundException, AudioCapacityException {
+        // add mp3 steganography header
+        payload = addMP3SteganographyHeader(payload);
+
+        // check if payload fits into carrier
+        if (payload.length * 8L > mp3File.getLength())
+            throw new AudioCapacityException("Message is longer than carrier.");
+
+        // create overlay (also checks if the bytes are a valid mp3 file)
+        AudioOverlay overlay = getOverlay(mp3File, seed);
+        // encode the payload
+        long start = System.nanoTime();
+        new LSBChanger(overlay).embed(payload);
+        this.metrics.encoded(payload.length, System.nanoTime() - start);
+    }
+
+    /**
+     * Retrieves the hidden message from the given mp3 file.
+     * @param mp3File the mp3 file that has a message hidden within
+     * @param seed the seed to use
+     * @return a byte array containing the hidden message
+     * @throws UnknownStegFormatException if the message could not be read from the mp3 file
+     * @throws AudioNotFoundException If the mp3 file is not supported by this algorithm
+     */
+    private byte[] decode(MP3File mp3File, long seed) throws UnknownStegFormatException, AudioNotFoundException {
         // create overlay (also checks if the bytes are a valid mp3 file)
-        AudioOverlay overlay = getOverlay(steganographicData, seed);
+        AudioOverlay overlay = getOverlay(mp3File, seed);
+        long start = System.nanoTime();
         // get the decoder
         LSBChanger lsbChanger = new LSBChanger(overlay);
 
@@ -197,10 +438,8 @@ public class MP3Steganography implements Steganography {
         int length = ByteBuffer.wrap(lsbChanger.decode(4)).getInt();
 
         // decode message according to decoded message length
-        message = lsbChanger.decode(length);
-
-        System.out.println("[INFO] Finished decoding from MP3 file.");
-        System.out.println();
+        byte[] message = lsbChanger.decode(length);
+        this.metrics.decoded(message.length, System.nanoTime() - start);
         return message;
     }
 
@@ -229,7 +468,7 @@ public class MP3Steganography implements Steganography {
             throw new NullPointerException("Data is null or has length 0");
 
         // create overlay and decoder
-        AudioOverlay overlay = getOverlay(data, seed);
+        AudioOverlay overlay = getOverlay(createMP3File(ByteBuffer.wrap(data)), seed);
         LSBChanger lsbChanger = new LSBChanger(overlay);
 
         // try to decode header
@@ -244,6 +483,27 @@ public class MP3Steganography implements Steganography {
         return new String(possibleHeader, StandardCharsets.US_ASCII).equals(HEADER_IDENTIFIER);
     }
 
+    /**
+     * Returns the maximum number of bytes that can be hidden in the given mp3 file using the overlay
+     * of this instance. The capacity is computed from the headers of the frames, without reading their data.
+     * @param carrier a byte array containing an mp3 file
+     * @return capacity in bytes
+     * @throws AudioNotFoundException If the given bytes either don't contain an mp3 file or
+     *                                the mp3 file is not supported by this algorithm
+     * @throws NullPointerException If the carrier is null
+     */
+    public int getMP3Capacity(byte[] carrier) throws AudioNotFoundException, NullPointerException {
+        if (carrier == null)
+            throw new NullPointerException("Carrier is null");
+
+        MP3File mp3File = createMP3File(ByteBuffer.wrap(carrier));
+        if (!mp3File.findAllFrames())
+            throw new AudioNotFoundException("The given byte array is not a valid MP3 file.");
+
+        // every data byte holds one bit, minus the 8 bytes header
+        return Math.max(0, mp3File.getModifiableCount() / 8 - 8);
+    }
+
     /**
      * Adds a 64 bit (8 bytes) header to the message to identify it when the message is retrieved.
      * The Header is composed like this:<br>
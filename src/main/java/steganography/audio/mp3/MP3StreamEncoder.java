@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import steganography.audio.exception.AudioCapacityException;
+import steganography.audio.exception.AudioNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * <p>Hides a message in the least significant bits of the modifiable bytes of an MP3 file while the file is read
+ * from a stream. The frames are found the same way as by {@link MP3File#findAllFrames()} using
+ * {@link MP3File.ScanMode#LEGACY} and the modifiable bytes are used in order, so the result is the same as encoding
+ * with {@link steganography.audio.overlays.MP3SequenceOverlay}.</p>
+ * <p>The bytes of a frame are written to the output as soon as the frame has been found. Only the bytes from the
+ * position the next search starts at are held in memory, starting with BUFFER_SIZE bytes. The search start lags
+ * behind the frames by the bytes before the first frame, so a large tag at the start of the file is held
+ * completely, as well as large parts of the file without a frame.</p>
+ */
+class MP3StreamEncoder {
+
+    /**
+     * Initial size of the buffer holding the part of the file that is searched for frames
+     * and size of the chunks written to the output
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final OutputStream output;
+
+    /**
+     * The bytes of the file from position bufferStart on, as they were read
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferStart = 0;
+    /**
+     * Number of bytes held by buffer
+     */
+    private int filled = 0;
+    private boolean endOfInput = false;
+
+    /**
+     * Position of the first byte of the file that has not been written to the output
+     */
+    private int written = 0;
+    private final byte[] outputChunk = new byte[BUFFER_SIZE];
+
+    private final LegacyFrameSearch search = new LegacyFrameSearch() {
+        @Override
+        protected boolean hasByte(int position) {
+            return position - bufferStart < filled || read(position);
+        }
+
+        @Override
+        protected byte getByte(int position) {
+            return buffer[position - bufferStart];
+        }
+    };
+
+    /**
+     * Creates an encoder reading an MP3 file from input and writing it to output.
+     * @param input stream to read the MP3 file from
+     * @param output stream to write the MP3 file with the hidden message to
+     */
+    MP3StreamEncoder(InputStream input, OutputStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Reads the MP3 file from the input, writes the message into the least significant bits of its modifiable
+     * bytes (most significant bit of each message byte first) and writes the file to the output. After the message
+     * has been written, the rest of the file is copied without searching for frames. The streams are not closed.
+     * @param message bytes to encode
+     * @throws IOException if the streams could not be read or written
+     * @throws AudioNotFoundException if no frames were found. Everything read has been written to the output.
+     * @throws AudioCapacityException if the file ended before the whole message was written into it.
+     *                                Everything read has been written to the output.
+     */
+    void encode(byte[] message) throws IOException, AudioNotFoundException, AudioCapacityException {
+        long bitCount = message.length * 8L;
+        long bit = 0;
+        int framesFound = 0;
+
+        try {
+            while (bit < bitCount && this.search.nextFrame()) {
+                framesFound++;
+                write(this.search.gapStart, message, bitCount, bitCount);
+                bit = write(this.search.gapEnd, message, bit, bitCount);
+                write(this.search.dataStart, message, bitCount, bitCount);
+                bit = write(this.search.dataEnd, message, bit, bitCount);
+                if (this.search.isModifiableToEnd())
+                    break;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // copy the rest of the file
+        int offset = this.written - this.bufferStart;
+        this.output.write(this.buffer, offset, this.filled - offset);
+        int read;
+        while ((read = this.input.read(this.buffer)) != -1) {
+            this.output.write(this.buffer, 0, read);
+        }
+        this.output.flush();
+
+        if (framesFound == 0)
+            throw new AudioNotFoundException("No MP3 frames found in the input.");
+        if (bit < bitCount)
+            throw new AudioCapacityException("Message (requires " + message.length + " bytes) does not fit into " +
+                    "the MP3 file (" + (bit / 8) + " bytes available).");
+    }
+
+    /**
+     * Writes the bytes from the first byte not written up to end (or the end of the file) to the output.
+     * The bits of the message from the given bit on are written into their least significant bits.
+     * @param end position after the last byte to write
+     * @param message bytes to encode
+     * @param bit index of the next bit of the message, bitCount to write the bytes unchanged
+     * @param bitCount number of bits of the message
+     * @return index of the next bit of the message
+     */
+    private long write(int end, byte[] message, long bit, long bitCount) throws IOException {
+        while (this.written < end && this.search.hasByte(this.written)) {
+            int offset = this.written - this.bufferStart;
+            int count = Math.min(Math.min(end - this.written, this.filled - offset), this.outputChunk.length);
+            // the bytes held stay unchanged, a following search might read them again
+            System.arraycopy(this.buffer, offset, this.outputChunk, 0, count);
+            for (int i = 0; i < count && bit < bitCount; i++, bit++) {
+                int messageBit = (message[(int) (bit >>> 3)] >>> (7 - (bit & 7))) & 1;
+                this.outputChunk[i] = (byte) ((this.outputChunk[i] & ~1) | messageBit);
+            }
+            this.output.write(this.outputChunk, 0, count);
+            this.written += count;
+        }
+        return bit;
+    }
+
+    /**
+     * Reads from the input until the byte at the given position is held or the input ended. Bytes that are
+     * neither read by the next search nor written to the output are dropped, the buffer grows if needed.
+     * @param position position of the byte in the file
+     * @return true, if the byte is held
+     * @throws UncheckedIOException if the input could not be read
+     */
+    private boolean read(int position) {
+        try {
+            while (!this.endOfInput && position - this.bufferStart >= this.filled) {
+                if (this.filled == this.buffer.length) {
+                    int keep = Math.min(this.search.getSearchStart(), this.written) - this.bufferStart;
+                    System.arraycopy(this.buffer, keep, this.buffer, 0, this.filled - keep);
+                    this.bufferStart += keep;
+                    this.filled -= keep;
+                    if (this.filled > this.buffer.length / 2)
+                        this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+                }
+
+                int read = this.input.read(this.buffer, this.filled, this.buffer.length - this.filled);
+                if (read == -1)
+                    this.endOfInput = true;
+                else
+                    this.filled += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return position - this.bufferStart < this.filled;
+    }
+}
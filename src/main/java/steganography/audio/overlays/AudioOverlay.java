@@ -48,6 +48,41 @@ public interface AudioOverlay {
      */
     void setByte(byte value) throws NoSuchElementException;
 
+    /**
+     * Reads up to length of the next modifiable bytes into buffer, as if next() was called for each of them.
+     * The default implementation reads a single byte with next(), overlays that can write back several bytes
+     * at once should override this and setBytes(byte[], int, int).
+     * @param buffer the buffer to read the bytes into
+     * @param offset position in buffer of the first byte
+     * @param length max number of bytes to read
+     * @return number of bytes read (at most length, 0 if no bytes are available)
+     */
+    default int next(byte[] buffer, int offset, int length) {
+        if (length < 1 || available() < 1)
+            return 0;
+
+        buffer[offset] = next();
+        return 1;
+    }
+
+    /**
+     * Sets the bytes returned by the last call to next(byte[], int, int) to the given values.
+     * The default implementation sets the single byte read by the default next(byte[], int, int) with setByte().
+     * @param values the values to set the bytes to, in the order they were returned
+     * @param offset position in values of the first value
+     * @param length number of values, has to be the number of bytes returned by the last call to
+     *               next(byte[], int, int)
+     * @throws NoSuchElementException if next(byte[], int, int) has not been called before or
+     *                                length does not match the number of bytes it returned
+     */
+    default void setBytes(byte[] values, int offset, int length) throws NoSuchElementException {
+        if (length > 1)
+            throw new NoSuchElementException("Number of values does not match the last read");
+
+        if (length == 1)
+            setByte(values[offset]);
+    }
+
     /**
      * Returns the byte array this object holds.
      * @return byte array held by this object
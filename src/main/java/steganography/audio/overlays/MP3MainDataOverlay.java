@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.overlays;
+
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.mp3.MP3File;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>This class returns only the main data bytes of an MP3 file, permuted according to a seed like
+ * {@link MP3PermutationOverlay}.</p>
+ * <p>The side information following the header (and checksum) of Layer III frames is left untouched,
+ * as changing it can make a frame undecodable. Frames with a CRC checksum are used as well, since the
+ * checksum only covers the header and the side information.</p>
+ */
+public class MP3MainDataOverlay extends MP3PermutationOverlay {
+
+    /**
+     * Adds a main data overlay to a given byte array containing an MP3 file.
+     * @param bytes byte array containing an MP3 file
+     * @param seed seed to permute the byte order by
+     * @throws AudioNotFoundException if the given byte array is null or does not contain an MP3 file
+     */
+    public MP3MainDataOverlay(byte[] bytes, long seed) throws AudioNotFoundException {
+        super(toMainDataFile(bytes), seed);
+    }
+
+    /**
+     * Adds a main data overlay to a given MP3 file.
+     * @param mp3File the MP3 file, has to be searched using MP3File.ScanMode.MAIN_DATA
+     * @param seed seed to permute the byte order by
+     * @throws AudioNotFoundException if the given MP3 file is null or no frames could be found in it
+     * @throws IllegalArgumentException if the side information of the MP3 file is modifiable
+     */
+    public MP3MainDataOverlay(MP3File mp3File, long seed) throws AudioNotFoundException, IllegalArgumentException {
+        super(checkMainDataOnly(mp3File), seed);
+    }
+
+    private static MP3File toMainDataFile(byte[] bytes) throws AudioNotFoundException {
+        if (bytes == null)
+            throw new AudioNotFoundException("The given byte array is null and therefore not a valid MP3 file.");
+        return new MP3File(ByteBuffer.wrap(bytes), MP3File.ScanMode.MAIN_DATA);
+    }
+
+    private static MP3File checkMainDataOnly(MP3File mp3File) {
+        if (mp3File != null && !mp3File.isMainDataOnly())
+            throw new IllegalArgumentException("The MP3 file has to be searched using " +
+                    MP3File.ScanMode.MAIN_DATA + ".");
+        return mp3File;
+    }
+}
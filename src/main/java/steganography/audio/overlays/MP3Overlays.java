@@ -19,17 +19,38 @@
 package steganography.audio.overlays;
 
 /**
- * This enum contains every overlay that can be used to encode or decode messages into or from MP3 files.
+ * <p>This enum contains every overlay that can be used to encode or decode messages into or from MP3 files.</p>
+ * <p>Only PERMUTATION_OVERLAY and MAIN_DATA_OVERLAY use the fast frame search, which skips ID3v2 tags and jumps
+ * from frame to frame. SEQUENCE_OVERLAY and SHUFFLE_OVERLAY search the frames byte by byte like the first
+ * versions did, so files encoded by them can still be decoded. Their search takes time proportional to the
+ * size of the file, including its tags.</p>
  * @author Richard Rudek
  */
 public enum MP3Overlays {
     /**
-     * Goes through MP3 files and reads from (or writes to) data bytes <b>in order</b>
+     * Goes through MP3 files and reads from (or writes to) data bytes <b>in order</b>.
+     * The frames are searched using MP3File.ScanMode.LEGACY.
      */
     SEQUENCE_OVERLAY,
 
     /**
-     * Goes through MP3 files and reads from (or writes to) <b>shuffled</b> data bytes according to a seed
+     * Goes through MP3 files and reads from (or writes to) <b>shuffled</b> data bytes according to a seed.
+     * The frames are searched using MP3File.ScanMode.LEGACY. The order of all data bytes is kept, which takes
+     * 4 bytes of heap per data byte, so it is not suited for large files.
      */
-    SHUFFLE_OVERLAY
+    SHUFFLE_OVERLAY,
+
+    /**
+     * Goes through MP3 files and reads from (or writes to) <b>permuted</b> data bytes according to a seed,
+     * computing the position of each data byte when it is needed. The frames are searched using
+     * MP3File.ScanMode.FRAME_DATA.
+     */
+    PERMUTATION_OVERLAY,
+
+    /**
+     * Goes through MP3 files and reads from (or writes to) <b>permuted</b> data bytes according to a seed
+     * like PERMUTATION_OVERLAY, but only uses the <b>main data</b> of the frames and leaves their side
+     * information untouched. Frames with a CRC checksum are used as well.
+     */
+    MAIN_DATA_OVERLAY
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.overlays;
+
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.mp3.MP3File;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * <p>This class returns the MP3 data bytes randomized according to a seed, like {@link MP3ShuffleOverlay}.</p>
+ * <p>Instead of shuffling the indices of all data bytes up front, the position of a data byte is computed
+ * when it is needed, using a permutation of the indices that is keyed by the seed (a Feistel network with
+ * cycle walking). Creating the overlay and reading the first bytes (e.g. the header of a message) does not
+ * depend on the size of the MP3 file.</p>
+ * <p>The order of the data bytes differs from the one of {@link MP3ShuffleOverlay}, messages hidden with
+ * one of them can not be read with the other.</p>
+ */
+public class MP3PermutationOverlay extends MP3SequenceOverlay {
+
+    /**
+     * Number of rounds of the Feistel network
+     */
+    private static final int ROUNDS = 4;
+
+    /**
+     * Keys of the rounds, derived from the seed
+     */
+    private long[] roundKeys;
+    /**
+     * Number of bits of each half of a permuted value
+     */
+    private int halfBits;
+    /**
+     * Mask for the lower half of a permuted value
+     */
+    private long halfMask;
+
+    /**
+     * Adds a permutation overlay to a given byte array containing an MP3 file.
+     * This overlay retrieves only the data bytes of the MP3 file and returns the bytes randomized according to a seed.
+     * The file is searched using MP3File.ScanMode.FRAME_DATA.
+     * @param bytes byte array containing an MP3 file
+     * @param seed seed to permute the byte order by
+     * @throws AudioNotFoundException if the given byte array is null or does not contain an MP3 file
+     */
+    public MP3PermutationOverlay(byte[] bytes, long seed) throws AudioNotFoundException {
+        super(toFrameDataFile(bytes), seed);
+    }
+
+    /**
+     * Adds a permutation overlay to a given MP3 file.
+     * This overlay retrieves only the data bytes of the MP3 file and returns the bytes randomized according to a seed.
+     * @param mp3File the MP3 file, MP3Steganography searches it using MP3File.ScanMode.FRAME_DATA
+     * @param seed seed to permute the byte order by
+     * @throws AudioNotFoundException if the given MP3 file is null or no frames could be found in it
+     */
+    public MP3PermutationOverlay(MP3File mp3File, long seed) throws AudioNotFoundException {
+        super(mp3File, seed);
+    }
+
+    private static MP3File toFrameDataFile(byte[] bytes) throws AudioNotFoundException {
+        if (bytes == null)
+            throw new AudioNotFoundException("The given byte array is null and therefore not a valid MP3 file.");
+        return new MP3File(ByteBuffer.wrap(bytes), MP3File.ScanMode.FRAME_DATA);
+    }
+
+    /**
+     * Derives the keys of the permutation from the seed. The permutation works on the smallest domain of
+     * an even number of bits that holds every data byte index, which is less than four times
+     * the number of data bytes.
+     * @param seed the seed that influences the data byte order
+     */
+    @Override
+    protected void createOverlay(long seed) {
+        Random r = new Random(seed);
+        this.roundKeys = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            this.roundKeys[i] = r.nextLong();
+        }
+
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, this.dataByteCount - 1));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << this.halfBits) - 1;
+    }
+
+    /**
+     * Returns the index of the data byte at the given position. Values of the Feistel network that are not
+     * a data byte index are permuted again (cycle walking) until one is found, so the result is a
+     * permutation of [0, dataByteCount).
+     * @param position position in the data byte order
+     * @return index of the data byte
+     */
+    @Override
+    protected int getDataByteIndex(int position) {
+        long index = position;
+        do {
+            index = permute(index);
+        } while (index >= this.dataByteCount);
+        return (int) index;
+    }
+
+    @Override
+    protected void fillPositions(int firstPosition, int[] positions, int count) {
+        for (int i = 0; i < count; i++) {
+            positions[i] = this.mp3File.getModifiablePosition(getDataByteIndex(firstPosition + i));
+        }
+    }
+
+    /**
+     * Runs the given value through the Feistel network.
+     * @param value value in [0, 2^(2 * halfBits))
+     * @return permuted value in [0, 2^(2 * halfBits))
+     */
+    private long permute(long value) {
+        long left = value >>> this.halfBits;
+        long right = value & this.halfMask;
+        for (long key : this.roundKeys) {
+            long temp = right;
+            right = left ^ (mix(right ^ key) & this.halfMask);
+            left = temp;
+        }
+        return (left << this.halfBits) | right;
+    }
+
+    /**
+     * Mixes the bits of the given value (finalizer of SplitMix64).
+     * @param z value to mix
+     * @return mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
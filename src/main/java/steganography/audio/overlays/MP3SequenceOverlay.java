@@ -21,7 +21,7 @@ package steganography.audio.overlays;
 import steganography.audio.exception.AudioNotFoundException;
 import steganography.audio.mp3.MP3File;
 
-import java.util.List;
+import java.nio.ByteBuffer;
 import java.util.NoSuchElementException;
 
 /**
@@ -31,17 +31,33 @@ import java.util.NoSuchElementException;
 public class MP3SequenceOverlay implements AudioOverlay {
 
     /**
-     * The byte array containing the mp3 file
+     * The buffer containing the mp3 file (a byte array or a file mapped into memory)
      */
-    protected byte[] mp3Bytes;
+    protected ByteBuffer mp3Buffer;
     /**
-     * The (modified) order of data bytes
+     * The mp3 file, used to map the index of a data byte to its position in mp3Buffer
      */
-    protected List<Integer> dataByteOrder;
+    protected MP3File mp3File;
     /**
-     * The current data bytes position according to the dataByteOrder
+     * The number of data bytes
+     */
+    protected int dataByteCount;
+    /**
+     * The current data bytes index according to the data byte order
      */
     protected int currentPosition = -1;
+    /**
+     * The position in mp3Buffer of the current data byte
+     */
+    private int currentBytePosition = -1;
+    /**
+     * The positions in mp3Buffer of the data bytes returned by the last call to next(byte[], int, int)
+     */
+    private int[] batchPositions = new int[0];
+    /**
+     * The number of data bytes returned by the last call to next(byte[], int, int)
+     */
+    private int batchLength = -1;
 
 
     /**
@@ -53,47 +69,122 @@ public class MP3SequenceOverlay implements AudioOverlay {
      * @throws AudioNotFoundException if the given byte array is null or does not contain an MP3 file
      */
     public MP3SequenceOverlay(byte[] bytes, long seed) throws AudioNotFoundException {
-        if (bytes == null)
-            throw new AudioNotFoundException("The given byte array is null and therefore not a valid MP3 file.");
+        this(toMP3File(bytes), seed);
+    }
 
-        MP3File mp3File = new MP3File(bytes);
+    /**
+     * Adds a sequence overlay to a given MP3 file. Changes to the data bytes are written directly into the
+     * buffer of the MP3 file (see {@link MP3File#getMP3Buffer()}), e.g. into a file mapped into memory.
+     * @param mp3File the MP3 file
+     * @param seed would normally be used to influence the overlay (e.g. shuffling).
+     *             Obviously, this cannot be used in the a sequence overlay.
+     * @throws AudioNotFoundException if the given MP3 file is null or no frames could be found in it
+     */
+    public MP3SequenceOverlay(MP3File mp3File, long seed) throws AudioNotFoundException {
+        if (mp3File == null)
+            throw new AudioNotFoundException("The given MP3 file is null.");
         if (!mp3File.findAllFrames())
             throw new AudioNotFoundException("The given byte array is not a valid MP3 file.");
-        this.mp3Bytes = mp3File.getMP3Bytes();
-        this.dataByteOrder = mp3File.getModifiablePositions();
+        this.mp3Buffer = mp3File.getMP3Buffer();
+        this.mp3File = mp3File;
+        this.dataByteCount = mp3File.getModifiableCount();
 
         createOverlay(seed);
     }
 
+    private static MP3File toMP3File(byte[] bytes) throws AudioNotFoundException {
+        if (bytes == null)
+            throw new AudioNotFoundException("The given byte array is null and therefore not a valid MP3 file.");
+        return new MP3File(bytes);
+    }
+
     /**
-     * A hook method that is responsible for creating the dataByteOrder.
-     * @param seed the seed that influences the dataByteOrder
+     * A hook method that is responsible for creating the data byte order.
+     * @param seed the seed that influences the data byte order
      */
     protected void createOverlay(long seed) {}
 
+    /**
+     * A hook method that returns the index (in file order) of the data byte at the given position
+     * of the data byte order.
+     * @param position position in the data byte order
+     * @return index of the data byte, see {@link MP3File#getModifiablePosition(int)}
+     */
+    protected int getDataByteIndex(int position) {
+        return position;
+    }
+
+    /**
+     * Writes the positions in mp3Buffer of count data bytes into positions, starting with the data byte
+     * at the given position of the data byte order.
+     * @param firstPosition position in the data byte order of the first data byte
+     * @param positions array to write the positions to
+     * @param count number of positions
+     */
+    protected void fillPositions(int firstPosition, int[] positions, int count) {
+        this.mp3File.getModifiablePositions(firstPosition, positions, count);
+    }
+
     @Override
     public byte next() throws NoSuchElementException {
-        if (++this.currentPosition >= this.dataByteOrder.size())
+        if (++this.currentPosition >= this.dataByteCount)
             throw new NoSuchElementException("No more bytes left.");
 
-        return this.mp3Bytes[this.dataByteOrder.get(this.currentPosition)];
+        this.currentBytePosition = this.mp3File.getModifiablePosition(getDataByteIndex(this.currentPosition));
+        return this.mp3Buffer.get(this.currentBytePosition);
     }
 
     @Override
     public int available() {
-        return this.dataByteOrder.size() - this.currentPosition - 1;
+        return this.dataByteCount - this.currentPosition - 1;
     }
 
     @Override
     public void setByte(byte value) throws NoSuchElementException {
-        if (this.currentPosition == -1 || this.currentPosition >= this.dataByteOrder.size())
+        if (this.currentPosition == -1 || this.currentPosition >= this.dataByteCount)
             throw new NoSuchElementException("Current Position is invalid.");
 
-        this.mp3Bytes[this.dataByteOrder.get(this.currentPosition)] = value;
+        this.mp3Buffer.put(this.currentBytePosition, value);
     }
 
     @Override
-    public byte[] getBytes() {
-        return this.mp3Bytes;
+    public int next(byte[] buffer, int offset, int length) {
+        int count = Math.max(0, Math.min(length, available()));
+        if (count == 0)
+            return 0;
+
+        if (this.batchPositions.length < count)
+            this.batchPositions = new int[count];
+        fillPositions(this.currentPosition + 1, this.batchPositions, count);
+
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = this.mp3Buffer.get(this.batchPositions[i]);
+        }
+
+        this.currentPosition += count;
+        this.currentBytePosition = this.batchPositions[count - 1];
+        this.batchLength = count;
+        return count;
+    }
+
+    @Override
+    public void setBytes(byte[] values, int offset, int length) throws NoSuchElementException {
+        if (this.batchLength == -1 || length != this.batchLength)
+            throw new NoSuchElementException("Number of values (" + length + ") does not match the last read (" +
+                    this.batchLength + ").");
+
+        for (int i = 0; i < length; i++) {
+            this.mp3Buffer.put(this.batchPositions[i], values[offset + i]);
+        }
+    }
+
+    /**
+     * Returns the byte array containing the MP3 file.
+     * @return byte array held by this object
+     * @throws UnsupportedOperationException if the MP3 file is not backed by a byte array
+     */
+    @Override
+    public byte[] getBytes() throws UnsupportedOperationException {
+        return this.mp3File.getMP3Bytes();
     }
 }
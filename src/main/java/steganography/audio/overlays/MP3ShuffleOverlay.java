@@ -19,8 +19,8 @@
 package steganography.audio.overlays;
 
 import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.mp3.MP3File;
 
-import java.util.Collections;
 import java.util.Random;
 
 /**
@@ -40,13 +40,53 @@ public class MP3ShuffleOverlay extends MP3SequenceOverlay {
         super(bytes, seed);
     }
 
+    /**
+     * Adds a shuffle overlay to a given MP3 file.
+     * This overlay retrieves only the data bytes of the MP3 file and returns the bytes randomized according to a seed.
+     * @param mp3File the MP3 file
+     * @param seed seed to shuffle the byte order by
+     * @throws AudioNotFoundException if the given MP3 file is null or no frames could be found in it
+     */
+    public MP3ShuffleOverlay(MP3File mp3File, long seed) throws AudioNotFoundException {
+        super(mp3File, seed);
+    }
+
+    /**
+     * The shuffled indices of the data bytes
+     */
+    private int[] dataByteOrder;
+
     /**
      * Shuffles the data byte order randomly according to the seed.
+     * The order is the same as the one of Collections.shuffle(List, Random) on a list of all data byte indices.
+     * It can't be computed lazily without changing it, so it takes 4 bytes per data byte
+     * (see MP3PermutationOverlay for an order computed when needed).
      * @param seed the seed that influences the dataByteOrder
      */
     @Override
     protected void createOverlay(long seed) {
         Random r = new Random(seed);
-        Collections.shuffle(this.dataByteOrder, r);
+        this.dataByteOrder = new int[this.dataByteCount];
+        for (int i = 0; i < this.dataByteOrder.length; i++) {
+            this.dataByteOrder[i] = i;
+        }
+        for (int i = this.dataByteOrder.length; i > 1; i--) {
+            int j = r.nextInt(i);
+            int temp = this.dataByteOrder[i - 1];
+            this.dataByteOrder[i - 1] = this.dataByteOrder[j];
+            this.dataByteOrder[j] = temp;
+        }
+    }
+
+    @Override
+    protected int getDataByteIndex(int position) {
+        return this.dataByteOrder[position];
+    }
+
+    @Override
+    protected void fillPositions(int firstPosition, int[] positions, int count) {
+        for (int i = 0; i < count; i++) {
+            positions[i] = this.mp3File.getModifiablePosition(this.dataByteOrder[firstPosition + i]);
+        }
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.overlays;
+
+import steganography.audio.wav.WavFile;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * This class returns the least significant byte of every PCM sample of a WAV file in order.
+ * The bytes are read and written in bulk using a plain loop over the samples.
+ */
+public class WavSequenceOverlay implements AudioOverlay {
+
+    private final WavFile wavFile;
+    /**
+     * The buffer containing the WAV file (a byte array or a file mapped into memory)
+     */
+    private final ByteBuffer wavBuffer;
+    /**
+     * The byte array backing wavBuffer, null if there is none
+     */
+    private final byte[] wavBytes;
+    /**
+     * Position of the least significant byte of the first sample
+     */
+    private final int dataStart;
+    /**
+     * Distance between the least significant bytes of two samples
+     */
+    private final int stride;
+    private final int sampleCount;
+    /**
+     * The index of the current sample
+     */
+    private int currentPosition = -1;
+    /**
+     * The index of the first sample returned by the last call to next(byte[], int, int)
+     */
+    private int batchStart = -1;
+    /**
+     * The number of samples returned by the last call to next(byte[], int, int)
+     */
+    private int batchLength = -1;
+
+    /**
+     * Adds a sequence overlay to a given WAV file. Changes are written directly into the buffer of the WAV file
+     * (see {@link WavFile#getWavBuffer()}), e.g. into a file mapped into memory.
+     * @param wavFile the WAV file
+     */
+    public WavSequenceOverlay(WavFile wavFile) {
+        this.wavFile = wavFile;
+        this.wavBuffer = wavFile.getWavBuffer();
+        this.wavBytes = this.wavBuffer.hasArray() ? this.wavBuffer.array() : null;
+        this.dataStart = (this.wavBytes != null ? this.wavBuffer.arrayOffset() : 0) + wavFile.getDataStart();
+        this.stride = wavFile.getBytesPerSample();
+        this.sampleCount = wavFile.getSampleCount();
+    }
+
+    private int getBytePosition(int sample) {
+        return this.dataStart + sample * this.stride;
+    }
+
+    @Override
+    public byte next() throws NoSuchElementException {
+        if (++this.currentPosition >= this.sampleCount)
+            throw new NoSuchElementException("No more bytes left.");
+
+        return this.wavBytes != null ?
+                this.wavBytes[getBytePosition(this.currentPosition)] :
+                this.wavBuffer.get(getBytePosition(this.currentPosition));
+    }
+
+    @Override
+    public int available() {
+        return this.sampleCount - this.currentPosition - 1;
+    }
+
+    @Override
+    public void setByte(byte value) throws NoSuchElementException {
+        if (this.currentPosition == -1 || this.currentPosition >= this.sampleCount)
+            throw new NoSuchElementException("Current Position is invalid.");
+
+        if (this.wavBytes != null)
+            this.wavBytes[getBytePosition(this.currentPosition)] = value;
+        else
+            this.wavBuffer.put(getBytePosition(this.currentPosition), value);
+    }
+
+    @Override
+    public int next(byte[] buffer, int offset, int length) {
+        int count = Math.max(0, Math.min(length, available()));
+        if (count == 0)
+            return 0;
+
+        int first = getBytePosition(this.currentPosition + 1);
+        if (this.wavBytes != null) {
+            for (int i = 0, position = first; i < count; i++, position += this.stride) {
+                buffer[offset + i] = this.wavBytes[position];
+            }
+        } else if (this.stride == 1) {
+            ByteBuffer view = this.wavBuffer.duplicate();
+            view.position(first);
+            view.get(buffer, offset, count);
+        } else {
+            for (int i = 0, position = first; i < count; i++, position += this.stride) {
+                buffer[offset + i] = this.wavBuffer.get(position);
+            }
+        }
+
+        this.batchStart = this.currentPosition + 1;
+        this.batchLength = count;
+        this.currentPosition += count;
+        return count;
+    }
+
+    @Override
+    public void setBytes(byte[] values, int offset, int length) throws NoSuchElementException {
+        if (this.batchLength == -1 || length != this.batchLength)
+            throw new NoSuchElementException("Number of values (" + length + ") does not match the last read (" +
+                    this.batchLength + ").");
+
+        int first = getBytePosition(this.batchStart);
+        if (this.wavBytes != null) {
+            for (int i = 0, position = first; i < length; i++, position += this.stride) {
+                this.wavBytes[position] = values[offset + i];
+            }
+        } else if (this.stride == 1) {
+            ByteBuffer view = this.wavBuffer.duplicate();
+            view.position(first);
+            view.put(values, offset, length);
+        } else {
+            for (int i = 0, position = first; i < length; i++, position += this.stride) {
+                this.wavBuffer.put(position, values[offset + i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the byte array containing the WAV file.
+     * @return byte array held by this object
+     * @throws UnsupportedOperationException if the WAV file is not backed by a byte array
+     */
+    @Override
+    public byte[] getBytes() throws UnsupportedOperationException {
+        return this.wavFile.getWavBytes();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.wav;
+
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.exception.UnsupportedAudioTypeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>This class represents a WAV file (RIFF WAVE) holding PCM samples.</p>
+ * <p>The file is composed of chunks, each starting with a 4 byte id and a 4 byte length (little endian).
+ * Only the "fmt " chunk, describing the samples, and the "data" chunk, holding them, are used.
+ * The samples are stored little endian, so the first byte of each sample holds its least significant bits.</p>
+ */
+public class WavFile {
+
+    private static final int FORMAT_PCM = 0x0001;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * The buffer containing the WAV file (from index 0 to its limit)
+     */
+    private final ByteBuffer wavBuffer;
+
+    private final int channels;
+    private final int sampleRate;
+    private final int bitsPerSample;
+
+    /**
+     * Position of the first byte of the PCM samples
+     */
+    private final int dataStart;
+    /**
+     * Number of bytes of PCM samples (only whole samples)
+     */
+    private final int dataLength;
+
+    /**
+     * This constructs a WavFile object with the given bytes and reads its chunks.
+     * @param wavBytes the byte array containing the bytes of a WAV file
+     * @throws AudioNotFoundException if the bytes are not a WAV file
+     * @throws UnsupportedAudioTypeException if the samples are not PCM samples of 8, 16, 24 or 32 bits
+     */
+    public WavFile(byte[] wavBytes) throws AudioNotFoundException, UnsupportedAudioTypeException {
+        this(ByteBuffer.wrap(wavBytes));
+    }
+
+    /**
+     * This constructs a WavFile object with the given buffer (e.g. a file mapped into memory using
+     * {@link java.nio.channels.FileChannel#map}) and reads its chunks. The bytes from index 0 to the limit
+     * of the buffer are used, its position is ignored.
+     * @param wavBuffer the buffer containing the bytes of a WAV file
+     * @throws AudioNotFoundException if the bytes are not a WAV file
+     * @throws UnsupportedAudioTypeException if the samples are not PCM samples of 8, 16, 24 or 32 bits
+     */
+    public WavFile(ByteBuffer wavBuffer) throws AudioNotFoundException, UnsupportedAudioTypeException {
+        this.wavBuffer = wavBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer bytes = this.wavBuffer;
+        int length = bytes.limit();
+
+        if (length < 12 || !startsWith(0, "RIFF") || !startsWith(8, "WAVE"))
+            throw new AudioNotFoundException("The given bytes are not a WAV file.");
+
+        int formatStart = -1;
+        int formatLength = 0;
+        int dataStart = -1;
+        long dataLength = 0;
+
+        long position = 12;
+        while (position + 8 <= length && (formatStart == -1 || dataStart == -1)) {
+            int chunkStart = (int) position + 8;
+            long chunkLength = bytes.getInt((int) position + 4) & 0xFFFFFFFFL;
+            if (startsWith((int) position, "fmt ")) {
+                formatStart = chunkStart;
+                formatLength = (int) Math.min(chunkLength, length - chunkStart);
+            } else if (startsWith((int) position, "data")) {
+                dataStart = chunkStart;
+                dataLength = Math.min(chunkLength, length - chunkStart);
+            }
+            // chunks are padded to an even length
+            position = chunkStart + chunkLength + (chunkLength & 1);
+        }
+
+        if (formatStart == -1 || formatLength < 16 || dataStart == -1)
+            throw new AudioNotFoundException("The WAV file does not contain a format and a data chunk.");
+
+        int format = bytes.getShort(formatStart) & 0xFFFF;
+        // the extensible format holds the actual format in the first two bytes of its sub format GUID
+        if (format == FORMAT_EXTENSIBLE && formatLength >= 40)
+            format = bytes.getShort(formatStart + 24) & 0xFFFF;
+        this.channels = bytes.getShort(formatStart + 2) & 0xFFFF;
+        this.sampleRate = bytes.getInt(formatStart + 4);
+        this.bitsPerSample = bytes.getShort(formatStart + 14) & 0xFFFF;
+
+        if (format != FORMAT_PCM)
+            throw new UnsupportedAudioTypeException("Only PCM samples are supported, the format is " + format + ".");
+        if (this.bitsPerSample != 8 && this.bitsPerSample != 16 && this.bitsPerSample != 24 &&
+                this.bitsPerSample != 32)
+            throw new UnsupportedAudioTypeException("Only samples of 8, 16, 24 or 32 bits are supported, not " +
+                    this.bitsPerSample + " bits.");
+
+        this.dataStart = dataStart;
+        this.dataLength = (int) (dataLength - dataLength % getBytesPerSample());
+    }
+
+    private boolean startsWith(int position, String ascii) {
+        byte[] expected = ascii.getBytes(StandardCharsets.US_ASCII);
+        if (position + expected.length > this.wavBuffer.limit())
+            return false;
+
+        for (int i = 0; i < expected.length; i++) {
+            if (this.wavBuffer.get(position + i) != expected[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the byte array this class was given.
+     * @return the byte array this class was given
+     * @throws UnsupportedOperationException if this WavFile was created with a buffer that is not backed by an array
+     */
+    public byte[] getWavBytes() throws UnsupportedOperationException {
+        if (!this.wavBuffer.hasArray())
+            throw new UnsupportedOperationException("WavFile is not backed by a byte array");
+        return this.wavBuffer.array();
+    }
+
+    /**
+     * Returns the buffer containing the WAV file. Changes to the buffer are visible in this WavFile and vice versa.
+     * @return the buffer containing the WAV file
+     */
+    public ByteBuffer getWavBuffer() {
+        return this.wavBuffer;
+    }
+
+    /**
+     * Returns the number of channels.
+     * @return number of channels
+     */
+    public int getChannels() {
+        return this.channels;
+    }
+
+    /**
+     * Returns the number of samples per second (of each channel).
+     * @return sample rate in Hz
+     */
+    public int getSampleRate() {
+        return this.sampleRate;
+    }
+
+    /**
+     * Returns the size of a single sample.
+     * @return size in bytes
+     */
+    public int getBytesPerSample() {
+        return this.bitsPerSample / 8;
+    }
+
+    /**
+     * Returns the position of the first byte of the first sample.
+     * @return position in the WAV byte array
+     */
+    public int getDataStart() {
+        return this.dataStart;
+    }
+
+    /**
+     * Returns the number of samples (of all channels together).
+     * @return number of samples
+     */
+    public int getSampleCount() {
+        return this.dataLength / getBytesPerSample();
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.wav;
+
+import steganography.Steganography;
+import steganography.audio.LSBChanger;
+import steganography.audio.exception.AudioCapacityException;
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.exception.UnsupportedAudioTypeException;
+import steganography.audio.overlays.WavSequenceOverlay;
+import steganography.exceptions.UnknownStegFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>This class can encode and decode messages from a byte array (or a file) containing a WAV audio file.</p>
+ * <p>The message is hidden in the least significant bit of every PCM sample (8, 16, 24 or 32 bits),
+ * one bit per sample in order. The samples are used in order, so the seed has no effect.</p>
+ */
+public class WavSteganography implements Steganography {
+
+    /**
+     * The 4 Bytes used to identify messages hidden in wav files
+     */
+    private static final String HEADER_IDENTIFIER = "HAIW";
+    /**
+     * The length of the header (identifier and length of the message) in bytes
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * Conceals the given payload in the carrier (which is a wav file).
+     * @param carrier a byte array containing a wav file
+     * @param payload a byte array containing the message
+     * @return the given carrier with the hidden message
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If the carrier and or payload are null or have length 0
+     */
+    @Override
+    public byte[] encode(byte[] carrier, byte[] payload)
+            throws AudioNotFoundException, UnsupportedAudioTypeException, AudioCapacityException,
+            NullPointerException {
+        if (carrier == null || carrier.length == 0 || payload == null || payload.length == 0)
+            throw new NullPointerException("Carrier or payload are null or have length 0");
+
+        WavFile wavFile = new WavFile(carrier);
+        embed(wavFile, payload);
+        return wavFile.getWavBytes();
+    }
+
+    /**
+     * Conceals the given payload in the carrier (which is a wav file). The seed has no effect.
+     * @param carrier a byte array containing a wav file
+     * @param payload a byte array containing the message
+     * @param seed has no effect, the samples are used in order
+     * @return the given carrier with the hidden message
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If the carrier and or payload are null or have length 0
+     */
+    @Override
+    public byte[] encode(byte[] carrier, byte[] payload, long seed)
+            throws AudioNotFoundException, UnsupportedAudioTypeException, AudioCapacityException,
+            NullPointerException {
+        return encode(carrier, payload);
+    }
+
+    /**
+     * Conceals the given payload in the wav file at the given path. The file is mapped into memory and
+     * changed in place, so it is never loaded onto the heap as a whole.
+     * @param wavPath path of a wav file, has to be readable and writable
+     * @param payload a byte array containing the message
+     * @throws IOException If the file could not be read or written or is larger than 2 GB
+     * @throws AudioNotFoundException If the file doesn't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If the path or payload are null or the payload has length 0
+     */
+    public void encode(Path wavPath, byte[] payload)
+            throws IOException, AudioNotFoundException, UnsupportedAudioTypeException, AudioCapacityException,
+            NullPointerException {
+        if (wavPath == null || payload == null || payload.length == 0)
+            throw new NullPointerException("Path or payload are null or payload has length 0");
+
+        try (FileChannel channel = FileChannel.open(wavPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE);
+            embed(new WavFile(buffer), payload);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Conceals the given payload in a copy of the wav file carrier, which is written to output.
+     * The carrier is not changed. The copy is mapped into memory and changed in place, so neither of the files
+     * is loaded onto the heap as a whole. If encoding fails, output is deleted.
+     * @param carrier path of a wav file
+     * @param output path to write the wav file with the hidden message to (replaced, if it exists)
+     * @param payload a byte array containing the message
+     * @throws IOException If the files could not be read or written or the carrier is larger than 2 GB
+     * @throws AudioNotFoundException If the carrier doesn't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     * @throws NullPointerException If a path or the payload are null or the payload has length 0
+     */
+    public void encode(Path carrier, Path output, byte[] payload)
+            throws IOException, AudioNotFoundException, UnsupportedAudioTypeException, AudioCapacityException,
+            NullPointerException {
+        if (carrier == null || output == null)
+            throw new NullPointerException("Carrier or output path is null");
+
+        Files.copy(carrier, output, StandardCopyOption.REPLACE_EXISTING);
+        boolean encoded = false;
+        try {
+            encode(output, payload);
+            encoded = true;
+        } finally {
+            if (!encoded)
+                Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Attempts to retrieve a hidden message from the given byte array (which contains a wav file).
+     * @param steganographicData a byte array containing a wav file that has a message hidden within
+     * @return a byte array containing the hidden message
+     * @throws UnknownStegFormatException if the message could not be read from the given byte array.
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws NullPointerException If the given byte array is null or has length 0
+     */
+    @Override
+    public byte[] decode(byte[] steganographicData)
+            throws UnknownStegFormatException, AudioNotFoundException, UnsupportedAudioTypeException,
+            NullPointerException {
+        if (steganographicData == null || steganographicData.length == 0)
+            throw new NullPointerException("steganographicData is null or has length 0");
+
+        return decode(new WavFile(steganographicData));
+    }
+
+    /**
+     * Attempts to retrieve a hidden message from the given byte array (which contains a wav file).
+     * The seed has no effect.
+     * @param steganographicData a byte array containing a wav file that has a message hidden within
+     * @param seed has no effect, the samples are used in order
+     * @return a byte array containing the hidden message
+     * @throws UnknownStegFormatException if the message could not be read from the given byte array.
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws NullPointerException If the given byte array is null or has length 0
+     */
+    @Override
+    public byte[] decode(byte[] steganographicData, long seed)
+            throws UnknownStegFormatException, AudioNotFoundException, UnsupportedAudioTypeException,
+            NullPointerException {
+        return decode(steganographicData);
+    }
+
+    /**
+     * Attempts to retrieve a hidden message from the wav file at the given path.
+     * The file is mapped into memory read only, so it is never loaded onto the heap as a whole.
+     * @param wavPath path of a wav file that has a message hidden within
+     * @return a byte array containing the hidden message
+     * @throws IOException If the file could not be read or is larger than 2 GB
+     * @throws UnknownStegFormatException if the message could not be read from the file.
+     * @throws AudioNotFoundException If the file doesn't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws NullPointerException If the given path is null
+     */
+    public byte[] decode(Path wavPath)
+            throws IOException, UnknownStegFormatException, AudioNotFoundException, UnsupportedAudioTypeException,
+            NullPointerException {
+        if (wavPath == null)
+            throw new NullPointerException("Path is null");
+
+        try (FileChannel channel = FileChannel.open(wavPath, StandardOpenOption.READ)) {
+            return decode(new WavFile(map(channel, FileChannel.MapMode.READ_ONLY)));
+        }
+    }
+
+    /**
+     * Checks if the given byte array contains a message.
+     * @return true, if a message was found
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws NullPointerException If the given byte array is null or has length 0
+     */
+    @Override
+    public boolean isSteganographicData(byte[] data)
+            throws AudioNotFoundException, UnsupportedAudioTypeException, NullPointerException {
+        if (data == null || data.length == 0)
+            throw new NullPointerException("Data is null or has length 0");
+
+        LSBChanger lsbChanger = new LSBChanger(new WavSequenceOverlay(new WavFile(data)));
+        try {
+            byte[] possibleHeader = lsbChanger.decode(4);
+            return new String(possibleHeader, StandardCharsets.US_ASCII).equals(HEADER_IDENTIFIER);
+        } catch (UnknownStegFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the given byte array contains a message. The seed has no effect.
+     * @return true, if a message was found
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     * @throws NullPointerException If the given byte array is null or has length 0
+     */
+    @Override
+    public boolean isSteganographicData(byte[] data, long seed)
+            throws AudioNotFoundException, UnsupportedAudioTypeException, NullPointerException {
+        return isSteganographicData(data);
+    }
+
+    /**
+     * Returns the maximum number of bytes that can be hidden in the given wav file.
+     * @param carrier a byte array containing a wav file
+     * @return capacity in bytes
+     * @throws AudioNotFoundException If the given bytes don't contain a wav file
+     * @throws UnsupportedAudioTypeException If the samples of the wav file are not supported
+     */
+    public int getWavCapacity(byte[] carrier) throws AudioNotFoundException, UnsupportedAudioTypeException {
+        return Math.max(0, new WavFile(carrier).getSampleCount() / 8 - HEADER_LENGTH);
+    }
+
+    /**
+     * Maps the whole file of the given channel into memory.
+     * @param channel the channel of the file
+     * @param mode mode to map the file with
+     * @return the mapped file
+     * @throws IOException If the file could not be mapped or is larger than 2 GB
+     */
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("WAV file is too large (" + size + " bytes, at most " + Integer.MAX_VALUE +
+                    " bytes are supported).");
+        return channel.map(mode, 0, size);
+    }
+
+    /**
+     * Adds the header to the payload and writes both into the samples of the given wav file.
+     * @param wavFile the wav file to hide the payload in
+     * @param payload a byte array containing the message
+     * @throws AudioCapacityException If the payload does not fit into the carrier
+     */
+    private void embed(WavFile wavFile, byte[] payload) throws AudioCapacityException {
+        byte[] headerAndMessage = ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                .put(HEADER_IDENTIFIER.getBytes(StandardCharsets.US_ASCII))
+                .putInt(payload.length)
+                .put(payload)
+                .array();
+
+        new LSBChanger(new WavSequenceOverlay(wavFile)).embed(headerAndMessage);
+    }
+
+    /**
+     * Retrieves the hidden message from the given wav file.
+     * @param wavFile the wav file that has a message hidden within
+     * @return a byte array containing the hidden message
+     * @throws UnknownStegFormatException if the message could not be read from the wav file
+     */
+    private byte[] decode(WavFile wavFile) throws UnknownStegFormatException {
+        LSBChanger lsbChanger = new LSBChanger(new WavSequenceOverlay(wavFile));
+
+        // decode the header
+        byte[] header = lsbChanger.decode(4);
+        if (!new String(header, StandardCharsets.US_ASCII).equals(HEADER_IDENTIFIER))
+            throw new UnknownStegFormatException("No hidden Message found.");
+
+        // if header was found, decode message length
+        int length = ByteBuffer.wrap(lsbChanger.decode(4)).getInt();
+
+        // decode message according to decoded message length
+        return lsbChanger.decode(length);
+    }
+}
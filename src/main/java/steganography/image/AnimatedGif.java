@@ -26,7 +26,9 @@ import steganography.Steganography;
 import steganography.exceptions.*;
 import steganography.image.exceptions.NoImageException;
 import steganography.image.exceptions.UnsupportedImageTypeException;
+import steganography.util.CapacityPlan;
 import steganography.util.ImageSequenceUtils;
+import steganography.util.SequenceHeader;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -60,7 +62,10 @@ public class AnimatedGif implements Steganography{
             if (animatedGif != null && payload != null) {
                 byte[][] gifFrames = maker.splitGIF(animatedGif);
                 byte[][] encoded = gifFrames;
-                List<byte[]> payloads = ImageSequenceUtils.sequenceDistribution(Arrays.asList(gifFrames),payload);
+                //The first frame holds a sequence header listing the frames that carry payload
+                CapacityPlan capacityPlan = ImageSequenceUtils.capacityPlan(Arrays.asList(gifFrames),
+                        Runtime.getRuntime().availableProcessors());
+                List<byte[]> payloads = ImageSequenceUtils.indexedDistribution(capacityPlan, payload);
                 for(int i = 0; i < payloads.size();i++) {
                     if(payloads.get(i) != null) {
                         encoded[i] = steg.encode(gifFrames[i], payloads.get(i), seed);
@@ -78,9 +83,11 @@ public class AnimatedGif implements Steganography{
     }
 
     /**
-     * Decodes a payload from an animated GIF
+     * Decodes a payload from an animated GIF. If the first frame holds a sequence header, only the frames
+     * listed in it are decoded. Otherwise frames are decoded until one holds no payload.
      * @see steganography.image.GIFMakerImageIO#splitGIF(byte[])
      * @see steganography.image.GIFMakerImageIO#sequenzGIF(byte[][])
+     * @see steganography.util.SequenceHeader
      */
     @Override
         public byte[] decode(byte[] stegGif, long seed) throws UnsupportedImageTypeException, NoImageException, IOException {
@@ -88,11 +95,15 @@ public class AnimatedGif implements Steganography{
             byte[][] gifFrames = maker.splitGIF(stegGif);
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
             try {
+                for (int i = 0; i < gifFrames.length; i++) {
+                    byte[] decoded = steg.decode(gifFrames[i], seed);
+                    // the first frame is only decoded once, whether it holds a sequence header or not
+                    if (i == 0) {
+                        SequenceHeader header = SequenceHeader.read(decoded);
+                        if (header != null)
+                            return decodeIndexed(header, decoded, gifFrames, seed);
+                    }
 
-
-                for (byte[] frame : gifFrames) {
-
-                    byte[] decoded = steg.decode(frame, seed);
                     if (decoded != null && decoded.length >= 1) {
                         bos.write(decoded);
                     }
@@ -106,6 +117,20 @@ public class AnimatedGif implements Steganography{
             }
         }
 
+    /**
+     * Decodes the frames listed in the sequence header. Other than frame by frame decoding, a listed frame
+     * without payload means the GIF is corrupt.
+     */
+    private static byte[] decodeIndexed(SequenceHeader header, byte[] firstPayload, byte[][] gifFrames, long seed)
+            throws UnsupportedImageTypeException, NoImageException, IOException {
+        try {
+            return ImageSequenceUtils.decodeIndexed(header, firstPayload, Arrays.asList(gifFrames),
+                    seed, Runtime.getRuntime().availableProcessors());
+        } catch (UnknownStegFormatException e) {
+            throw new IOException("Could not decode a frame listed in the sequence header", e);
+        }
+    }
+
     @Override
     public boolean isSteganographicData(byte[] data) throws IOException, MediaNotFoundException, UnsupportedMediaTypeException {
         return isSteganographicData(data, ImageSteg.DEFAULT_SEED);
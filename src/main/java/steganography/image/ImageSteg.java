@@ -28,6 +28,7 @@ import steganography.image.exceptions.UnsupportedImageTypeException;
 import steganography.util.ImageStegIO;
 import steganography.util.ImageStegIOJava;
 
+import java.awt.image.*;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -120,15 +121,62 @@ public class ImageSteg implements Steganography {
 
         ImageStegIO imageStegIO = new ImageStegIOJava(carrier, this.useTransparent);
 
-        BuffImgEncoder encoder = imageStegIO.getEncoder(seed);
+        encode(imageStegIO.getEncoder(seed), payload);
+
+        return imageStegIO.getImageAsByteArray();
+    }
+
+    /**
+     * <p>Encodes the payload into the given image, changing its pixels in place.</p>
+     * <p>This works like encode(byte[], byte[], long) without reading and writing the image, which makes it
+     * suitable for images that are already decoded, like frames of a video. To preserve the hidden message,
+     * the image must be stored in a lossless format afterwards.</p>
+     * <p>Only images of types without a color table (e.g. BufferedImage.TYPE_3BYTE_BGR or TYPE_INT_ARGB)
+     * are supported.</p>
+     * @param carrier image to encode the payload into
+     * @param payload payload to encode
+     * @param seed seed to distribute the payload with
+     * @throws UnsupportedImageTypeException if the type of the given image is not supported
+     * @throws ImageCapacityException if the payload doesn't fit in the image
+     * @see #decode(BufferedImage, long)
+     */
+    public void encode(BufferedImage carrier, byte[] payload, long seed)
+            throws UnsupportedImageTypeException, ImageCapacityException {
+
+        if (carrier == null)
+            throw new NullPointerException("Parameter 'carrier' must not be null");
+        if (payload == null)
+            throw new NullPointerException("Parameter 'payload' must not be null");
+
+        encode(new ImageStegIOJava(carrier, this.useTransparent).getPixelBitEncoder(seed), payload);
+    }
+
+    /**
+     * <p>Encodes the payload into the given pixels, changing them in place.</p>
+     * <p>The pixels are given as ARGB values (like BufferedImage.getRGB() returns them) row by row,
+     * so pixel (x, y) is argb[y * width + x]. This works like encode(BufferedImage, byte[], long) for an image
+     * of type BufferedImage.TYPE_INT_ARGB.</p>
+     * @param argb pixels of the image to encode the payload into
+     * @param width width of the image
+     * @param height height of the image
+     * @param payload payload to encode
+     * @param seed seed to distribute the payload with
+     * @throws ImageCapacityException if the payload doesn't fit in the image
+     * @see #decode(int[], int, int, long)
+     */
+    public void encode(int[] argb, int width, int height, byte[] payload, long seed) throws ImageCapacityException {
+        if (payload == null)
+            throw new NullPointerException("Parameter 'payload' must not be null");
+
+        encode(getARGBEncoder(argb, width, height, seed), payload);
+    }
 
+    private void encode(BuffImgEncoder encoder, byte[] payload) throws ImageCapacityException {
         if (this.useDefaultHeader) {
             encoder.encode(int2bytes(HEADER_SIGNATURE));
             encoder.encode(int2bytes(payload.length));
         }
         encoder.encode(payload);
-
-        return imageStegIO.getImageAsByteArray();
     }
 
     /**
@@ -184,10 +232,45 @@ public class ImageSteg implements Steganography {
         if (steganographicData == null)
             throw new NullPointerException("Parameter 'steganographicData' must not be null");
 
-        ImageStegIO imageStegIO = new ImageStegIOJava(steganographicData, this.useTransparent);
+        return decode(new ImageStegIOJava(steganographicData, this.useTransparent).getEncoder(seed));
+    }
 
-        BuffImgEncoder encoder = imageStegIO.getEncoder(seed);
+    /**
+     * <p>Decodes a hidden message in the given image and returns it as a byte array.</p>
+     * <p>This works like decode(byte[], long) for an image that is already decoded, like a frame of a video.
+     * Only images of types without a color table are supported (see encode(BufferedImage, byte[], long)).</p>
+     * @param steganographicData Image containing the hidden message to decode
+     * @param seed seed that was used to encode the given image
+     * @return the hidden message as a byte array
+     * @throws UnsupportedImageTypeException if the type of the given image is not supported
+     * @throws UnknownStegFormatException if the default header could not be found
+     * @see #encode(BufferedImage, byte[], long)
+     */
+    public byte[] decode(BufferedImage steganographicData, long seed)
+            throws UnsupportedImageTypeException, UnknownStegFormatException {
+
+        if (steganographicData == null)
+            throw new NullPointerException("Parameter 'steganographicData' must not be null");
 
+        return decode(new ImageStegIOJava(steganographicData, this.useTransparent).getPixelBitEncoder(seed));
+    }
+
+    /**
+     * <p>Decodes a hidden message in the given pixels and returns it as a byte array.</p>
+     * <p>The pixels are given as ARGB values row by row (see encode(int[], int, int, byte[], long)).</p>
+     * @param argb pixels of the image containing the hidden message to decode
+     * @param width width of the image
+     * @param height height of the image
+     * @param seed seed that was used to encode the given pixels
+     * @return the hidden message as a byte array
+     * @throws UnknownStegFormatException if the default header could not be found
+     * @see #encode(int[], int, int, byte[], long)
+     */
+    public byte[] decode(int[] argb, int width, int height, long seed) throws UnknownStegFormatException {
+        return decode(getARGBEncoder(argb, width, height, seed));
+    }
+
+    private byte[] decode(BuffImgEncoder encoder) throws UnknownStegFormatException {
         // decode 4 bytes and compare them to header signature
         if (bytesToInt(encoder.decode(4)) != HEADER_SIGNATURE) {
             throw new UnknownStegFormatException("No steganographic encoding found.");
@@ -274,9 +357,40 @@ public class ImageSteg implements Steganography {
         return bytesToInt(encoder.decode(4)) == HEADER_SIGNATURE;
     }
 
+    /**
+     * Returns true, if the given image (that is already decoded, like a frame of a video) starts with the
+     * default header. See encode(BufferedImage, byte[], long).
+     * @param data image to check
+     * @param seed seed that was used to encode the given image
+     * @return true if the default header was found
+     * @throws UnsupportedImageTypeException if the type of the given image is not supported
+     */
+    public boolean isSteganographicData(BufferedImage data, long seed) throws UnsupportedImageTypeException {
+        if (data == null)
+            throw new NullPointerException("Parameter 'data' must not be null");
+
+        BuffImgEncoder encoder = new ImageStegIOJava(data, this.useTransparent).getPixelBitEncoder(seed);
+
+        return bytesToInt(encoder.decode(4)) == HEADER_SIGNATURE;
+    }
+
+    /**
+     * Returns true, if the given pixels start with the default header.
+     * See encode(int[], int, int, byte[], long).
+     * @param argb pixels of the image to check
+     * @param width width of the image
+     * @param height height of the image
+     * @param seed seed that was used to encode the given pixels
+     * @return true if the default header was found
+     */
+    public boolean isSteganographicData(int[] argb, int width, int height, long seed) {
+        return bytesToInt(getARGBEncoder(argb, width, height, seed).decode(4)) == HEADER_SIGNATURE;
+    }
+
     /**
      * Returns the maximum number of bytes that can be encoded (as payload) in the given image.
      * This method accounts for the use of transparent pixels and default header as given to the constructor.
+     * If possible, the capacity is determined from the images header without decoding the image.
      * @param image image to potentially encode bytes in
      * @return the payload-capacity of image
      * @throws IOException if an error occurs during reading the image
@@ -287,9 +401,66 @@ public class ImageSteg implements Steganography {
     public int getImageCapacity(byte[] image)
             throws IOException, NoImageException, UnsupportedImageTypeException {
 
-        int capacity = new ImageStegIOJava(image, this.useTransparent)
-                .getEncoder(DEFAULT_SEED)
-                .getOverlay().available() / 8;
+        int capacity = new ImageStegIOJava(image, this.useTransparent).getPixelCapacity() / 8;
+
+        return this.useDefaultHeader ? (capacity - 8) : capacity;
+    }
+
+    /**
+     * Returns the maximum number of bytes that can be encoded (as payload) in the given image
+     * using encode(BufferedImage, byte[], long).
+     * This method accounts for the use of transparent pixels and default header as given to the constructor.
+     * @param image image to potentially encode bytes in
+     * @return the payload-capacity of image
+     * @throws UnsupportedImageTypeException if the type of the given image is not supported
+     * @see #ImageSteg(boolean, boolean)
+     */
+    public int getImageCapacity(BufferedImage image) throws UnsupportedImageTypeException {
+        int capacity = new ImageStegIOJava(image, this.useTransparent).getPixelBitCapacity() / 8;
+
+        return this.useDefaultHeader ? (capacity - 8) : capacity;
+    }
+
+    /**
+     * Returns the maximum number of bytes that can be encoded (as payload) in an image of the given size
+     * without transparent pixels, like a decoded video frame. The image itself is not needed for this.
+     * This method accounts for the use of default header as given to the constructor.
+     * @param width width of the image
+     * @param height height of the image
+     * @return the payload-capacity of an opaque image of this size
+     * @see #ImageSteg(boolean, boolean)
+     */
+    public int getImageCapacity(int width, int height) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+
+        int capacity = (int) ((long) width * height / 8);
+
+        return this.useDefaultHeader ? (capacity - 8) : capacity;
+    }
+
+    /**
+     * Returns the maximum number of bytes that can be encoded (as payload) in the given pixels
+     * using encode(int[], int, int, byte[], long).
+     * This method accounts for the use of transparent pixels and default header as given to the constructor.
+     * @param argb pixels of the image to potentially encode bytes in
+     * @param width width of the image
+     * @param height height of the image
+     * @return the payload-capacity of the pixels
+     * @see #ImageSteg(boolean, boolean)
+     */
+    public int getImageCapacity(int[] argb, int width, int height) {
+        checkARGBSize(argb, width, height);
+
+        int pixels = width * height;
+        if (!this.useTransparent) {
+            pixels = 0;
+            for (int i = 0; i < width * height; i++) {
+                if ((argb[i] >>> 24) != 0)
+                    pixels++;
+            }
+        }
+        int capacity = pixels / 8;
 
         return this.useDefaultHeader ? (capacity - 8) : capacity;
     }
@@ -298,6 +469,33 @@ public class ImageSteg implements Steganography {
     //                                       UTIL
     ////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Returns the encoder for an image of type TYPE_INT_ARGB that uses the given array as its pixels,
+     * so changes made by the encoder are written to the array.
+     */
+    private BuffImgEncoder getARGBEncoder(int[] argb, int width, int height, long seed) {
+        checkARGBSize(argb, width, height);
+
+        DirectColorModel colorModel = (DirectColorModel) ColorModel.getRGBdefault();
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(argb, width * height),
+                width, height, width, colorModel.getMasks(), null);
+        try {
+            return new ImageStegIOJava(new BufferedImage(colorModel, raster, false, null), this.useTransparent)
+                    .getPixelBitEncoder(seed);
+        } catch (UnsupportedImageTypeException e) {
+            // TYPE_INT_ARGB is always handled by PixelBit
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkARGBSize(int[] argb, int width, int height) {
+        if (argb == null)
+            throw new NullPointerException("Parameter 'argb' must not be null");
+        if (width < 1 || height < 1 || (long) width * height > argb.length)
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height + " for " + argb.length +
+                    " pixels");
+    }
+
     private byte[] int2bytes(int integer) {
         return new byte[] {
                 (byte) ((integer >> 24) & 0xFF),
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * <p>A SeekableByteChannel keeping its content in memory, growing as needed.</p>
+ * <p>Muxers like the one for AVI seek back to complete their headers, so they can't write to a pipe. This channel
+ * can be used instead of a temporary file, its content is still available after it was closed
+ * (see {@link #toByteArray()}).</p>
+ */
+public class ByteArrayChannel implements SeekableByteChannel {
+    /**
+     * Some VMs reserve header words in arrays
+     */
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private byte[] data;
+    private int size = 0;
+    private long position = 0;
+    private boolean open = true;
+
+    public ByteArrayChannel() {
+        this(8192);
+    }
+
+    /**
+     * @param initialCapacity number of bytes the channel can hold before it has to grow
+     */
+    public ByteArrayChannel(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Initial capacity must not be negative");
+        this.data = new byte[initialCapacity];
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size)
+            return -1;
+
+        int length = (int) Math.min(dst.remaining(), size - position);
+        dst.put(data, (int) position, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int length = src.remaining();
+        long end = position + length;
+        if (end > MAX_SIZE)
+            throw new IOException("Channel can't hold more than " + MAX_SIZE + " bytes");
+
+        if (end > data.length)
+            data = Arrays.copyOf(data, (int) Math.min(MAX_SIZE, Math.max(end, 2L * data.length)));
+        //Bytes skipped by seeking beyond the end are zero, even if the channel was truncated before
+        if (position > size)
+            Arrays.fill(data, size, (int) position, (byte) 0);
+        src.get(data, (int) position, length);
+        position = end;
+        size = (int) Math.max(size, end);
+        return length;
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0)
+            throw new IllegalArgumentException("Position must not be negative");
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel truncate(long newSize) throws IOException {
+        ensureOpen();
+        if (newSize < 0)
+            throw new IllegalArgumentException("Size must not be negative");
+        if (newSize < size)
+            size = (int) newSize;
+        if (position > newSize)
+            position = newSize;
+        return this;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+    }
+
+    /**
+     * Returns the content of the channel, also after it was closed
+     *
+     * @return copy of all bytes written to the channel
+     */
+    public synchronized byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open)
+            throw new ClosedChannelException();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.util;
+
+/**
+ * <p>Holds the payload capacity of every image of an image sequence (frames of a video or an animated GIF).</p>
+ * <p>A CapacityPlan is computed once per sequence (see {@link ImageSequenceUtils#capacityPlan(java.util.List, int)})
+ * and can then be reused for the capacity check, the distribution of the payload and the encoding
+ * without reading the images again.</p>
+ */
+public class CapacityPlan {
+
+    /**
+     * Payload capacity in bytes of every image. Never negative.
+     */
+    private final int[] frameCapacities;
+
+    /**
+     * Sum of all frame capacities
+     */
+    private final long totalCapacity;
+
+    /**
+     * Creates a CapacityPlan from the given capacities. Negative capacities are treated as 0.
+     * @param frameCapacities payload capacity in bytes of every image (index is equal to order of images)
+     */
+    public CapacityPlan(int[] frameCapacities) {
+        this.frameCapacities = new int[frameCapacities.length];
+        long total = 0;
+        for (int i = 0; i < frameCapacities.length; i++) {
+            this.frameCapacities[i] = Math.max(0, frameCapacities[i]);
+            total += this.frameCapacities[i];
+        }
+        this.totalCapacity = total;
+    }
+
+    /**
+     * Returns the number of images in this plan
+     * @return number of images
+     */
+    public int getFrameCount() {
+        return this.frameCapacities.length;
+    }
+
+    /**
+     * Returns the payload capacity of the image at the given index
+     * @param frame index of the image
+     * @return capacity in bytes (0 if the image cannot hold any payload)
+     */
+    public int getFrameCapacity(int frame) {
+        return this.frameCapacities[frame];
+    }
+
+    /**
+     * Returns the payload capacity of the whole sequence
+     * @return sum of all capacities in bytes
+     */
+    public long getTotalCapacity() {
+        return this.totalCapacity;
+    }
+}
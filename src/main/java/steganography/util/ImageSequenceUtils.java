@@ -18,13 +18,21 @@
 
 package steganography.util;
 
+import steganography.exceptions.UnknownStegFormatException;
 import steganography.image.ImageSteg;
+import steganography.image.exceptions.ImageCapacityException;
 import steganography.image.exceptions.NoImageException;
 import steganography.image.exceptions.UnsupportedImageTypeException;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
 
 public class ImageSequenceUtils {
 
@@ -39,41 +47,417 @@ public class ImageSequenceUtils {
      * @throws IOException if IO Exception is thrown during read operations
      * @throws NoImageException read failed
      * @throws UnsupportedImageTypeException UnsupportedImageTypeException
+     * @see #sequenceDistribution(CapacityPlan, byte[])
      */
     public static List<byte[]> sequenceDistribution(List<byte[]> imageList, byte[] payload) throws IOException, NoImageException, UnsupportedImageTypeException {
+        return sequenceDistribution(capacityPlan(imageList, Runtime.getRuntime().availableProcessors()), payload);
+    }
+
+    /**
+     * Takes a payload and splits it in parts that fit in each image of the given CapacityPlan.
+     * List entry is null if no payload split is present for the image
+     *
+     * @param capacityPlan capacities of the images to be used to split payload
+     * @param payload      payload to be split
+     * @return list of payload splits (index is equal to order of images in capacityPlan).
+     * Entry is Null if no payload for image
+     */
+    public static List<byte[]> sequenceDistribution(CapacityPlan capacityPlan, byte[] payload) {
         int chunkCursor = 0;
         List<byte[]> payloadSplitted = new ArrayList<>();
-        ImageSteg steganography = new ImageSteg();
-        for (byte[] image : imageList) {
-            //If entire payload copied, just add null
-            if (chunkCursor >= payload.length) {
+        for (int i = 0; i < capacityPlan.getFrameCount(); i++) {
+            int maxImagePayload = capacityPlan.getFrameCapacity(i);
+            //If entire payload copied or image can't hold any payload, just add null
+            if (chunkCursor >= payload.length || maxImagePayload <= 0) {
                 payloadSplitted.add(null);
             } else {
-                //Distribute payload into frames
-                int maxImagePayload = steganography.getImageCapacity(image);
-                //New copy of payload array that holds max amount of payload the current image can hold
-                byte[] payloadChunk;
-                if (maxImagePayload <= 0) {
-                    payloadSplitted.add(null);
-                } else {
-                    //If payload left to be encoded is bigger than what the current image can hold, encode as much as possible
-                    if (payload.length - chunkCursor > maxImagePayload) {
-                        payloadChunk = new byte[maxImagePayload];
-                    } else {
-                        // else encode only payload length
-                        payloadChunk = new byte[payload.length - chunkCursor];
-                    }
-
-                    System.arraycopy(payload, chunkCursor, payloadChunk, 0, payloadChunk.length);
-                    payloadSplitted.add(payloadChunk);
-                    chunkCursor += payloadChunk.length;
+                //Encode as much as possible, but only what is left of the payload
+                byte[] payloadChunk = new byte[Math.min(maxImagePayload, payload.length - chunkCursor)];
+
+                System.arraycopy(payload, chunkCursor, payloadChunk, 0, payloadChunk.length);
+                payloadSplitted.add(payloadChunk);
+                chunkCursor += payloadChunk.length;
+            }
+        }
+        return payloadSplitted;
+    }
+
+    /**
+     * <p>Takes a payload and splits it in parts that fit in each image of the given CapacityPlan
+     * (see {@link #sequenceDistribution(CapacityPlan, byte[])}), with a {@link SequenceHeader} in front of the
+     * part of the first image.</p>
+     * <p>The header lists the images carrying payload, so they can be decoded without searching for the end
+     * of the payload (see {@link #decodeIndexed(SequenceHeader, byte[], List, long, int)}).</p>
+     *
+     * @param capacityPlan capacities of the images to be used to split payload
+     * @param payload      payload to be split
+     * @return list of payload splits (index is equal to order of images in capacityPlan).
+     * Entry is Null if no payload for image
+     * @throws ImageCapacityException if the payload and the header don't fit in the images
+     */
+    public static List<byte[]> indexedDistribution(CapacityPlan capacityPlan, byte[] payload)
+            throws ImageCapacityException {
+        int frameCount = capacityPlan.getFrameCount();
+        int headerLength = SequenceHeader.length(frameCount);
+        if (frameCount == 0 || capacityPlan.getFrameCapacity(0) < headerLength)
+            throw new ImageCapacityException("First image can't hold the sequence header of " + headerLength + " bytes");
+        if (payload.length > capacityPlan.getTotalCapacity() - headerLength)
+            throw new ImageCapacityException("Payload is too big for the images. Max capacity: " +
+                    (capacityPlan.getTotalCapacity() - headerLength) + " Bytes. Payload Bytes: " + payload.length);
+
+        //The first image holds the header in front of its part of the payload
+        int[] capacities = new int[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            capacities[i] = capacityPlan.getFrameCapacity(i) - (i == 0 ? headerLength : 0);
+        }
+        List<byte[]> payloadSplitted = sequenceDistribution(new CapacityPlan(capacities), payload);
+
+        int[] dataFrames = IntStream.range(0, frameCount)
+                .filter(i -> i == 0 || payloadSplitted.get(i) != null)
+                .toArray();
+        byte[] header = new SequenceHeader(SequenceHeader.LAYOUT_SEQUENTIAL, payload.length, 0, frameCount, dataFrames)
+                .toBytes();
+        byte[] firstPayload = payloadSplitted.get(0) == null ? new byte[0] : payloadSplitted.get(0);
+        byte[] firstChunk = Arrays.copyOf(header, header.length + firstPayload.length);
+        System.arraycopy(firstPayload, 0, firstChunk, header.length, firstPayload.length);
+        payloadSplitted.set(0, firstChunk);
+
+        return payloadSplitted;
+    }
+
+    /**
+     * <p>Decodes the payload of an image sequence that starts with a {@link SequenceHeader}.</p>
+     * <p>Only the images listed in the header are decoded, using up to nThreads threads.</p>
+     *
+     * @param header       the SequenceHeader read from firstPayload
+     * @param firstPayload payload already decoded from the first image (including the header)
+     * @param imageList    list of all images of the sequence
+     * @param seed         seed to decode the images with
+     * @param nThreads     max number of threads to use
+     * @return the decoded payload
+     * @throws IOException if IO Exception is thrown during read operations or the images don't match the header
+     * @throws NoImageException read failed
+     * @throws UnsupportedImageTypeException UnsupportedImageTypeException
+     * @throws UnknownStegFormatException if an image listed in the header holds no payload
+     */
+    public static byte[] decodeIndexed(SequenceHeader header, byte[] firstPayload, List<byte[]> imageList,
+                                       long seed, int nThreads)
+            throws IOException, NoImageException, UnsupportedImageTypeException, UnknownStegFormatException {
+        //ImageSteg is not threads safe yet, so need to make an instance for each image
+        return decodeIndexed(header, firstPayload, imageList.size(),
+                frame -> new ImageSteg().decode(imageList.get(frame), seed), nThreads);
+    }
+
+    /**
+     * <p>Decodes the payload of a sequence of already decoded images (e.g. frames of a video) that starts with a
+     * {@link SequenceHeader}, see {@link ImageSteg#decode(BufferedImage, long)}.</p>
+     * <p>Only the images listed in the header are decoded, using up to nThreads threads.</p>
+     *
+     * @param header       the SequenceHeader read from firstPayload
+     * @param firstPayload payload already decoded from the first image (including the header)
+     * @param imageList    list of all images of the sequence, images not listed in the header may be null
+     * @param seed         seed to decode the images with
+     * @param nThreads     max number of threads to use
+     * @return the decoded payload
+     * @throws IOException if the images don't match the header
+     * @throws UnsupportedImageTypeException UnsupportedImageTypeException
+     * @throws UnknownStegFormatException if an image listed in the header holds no payload
+     */
+    public static byte[] decodeIndexedImages(SequenceHeader header, byte[] firstPayload, List<BufferedImage> imageList,
+                                             long seed, int nThreads)
+            throws IOException, UnsupportedImageTypeException, UnknownStegFormatException {
+        try {
+            return decodeIndexed(header, firstPayload, imageList.size(),
+                    frame -> new ImageSteg().decode(imageList.get(frame), seed), nThreads);
+        } catch (NoImageException e) {
+            //images are already decoded
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the payload of a single image of a sequence
+     */
+    private interface FrameDecoder {
+        byte[] decode(int frame)
+                throws IOException, NoImageException, UnsupportedImageTypeException, UnknownStegFormatException;
+    }
+
+    private static byte[] decodeIndexed(SequenceHeader header, byte[] firstPayload, int imageCount,
+                                        FrameDecoder frameDecoder, int nThreads)
+            throws IOException, NoImageException, UnsupportedImageTypeException, UnknownStegFormatException {
+        if (header.getFrameCount() != imageCount)
+            throw new IOException("Sequence header expects " + header.getFrameCount() + " images, but got " +
+                    imageCount);
+
+        int[] dataFrames = header.getDataFrames();
+        //The frame count is read from the payload, only frames up to the last listed one are needed
+        byte[][] decodedFrames = new byte[dataFrames.length == 0 ? 1 : dataFrames[dataFrames.length - 1] + 1][];
+        decodedFrames[0] = firstPayload;
+
+        if (nThreads <= 1 || dataFrames.length <= 2) {
+            for (int frame : dataFrames) {
+                if (decodedFrames[frame] == null)
+                    decodedFrames[frame] = frameDecoder.decode(frame);
+            }
+        } else {
+            ExecutorService taskExecutor = Executors.newFixedThreadPool(Math.min(nThreads, dataFrames.length));
+            List<Integer> frames = new ArrayList<>();
+            List<Callable<byte[]>> taskList = new ArrayList<>();
+            for (int frame : dataFrames) {
+                if (decodedFrames[frame] == null) {
+                    frames.add(frame);
+                    taskList.add(() -> frameDecoder.decode(frame));
+                }
+            }
+
+            try {
+                List<Future<byte[]>> futureList = taskExecutor.invokeAll(taskList);
+                for (int i = 0; i < futureList.size(); i++) {
+                    decodedFrames[frames.get(i)] = futureList.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding images");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                if (cause instanceof NoImageException)
+                    throw (NoImageException) cause;
+                if (cause instanceof UnsupportedImageTypeException)
+                    throw (UnsupportedImageTypeException) cause;
+                if (cause instanceof UnknownStegFormatException)
+                    throw (UnknownStegFormatException) cause;
+                throw new IllegalStateException(cause);
+            } finally {
+                taskExecutor.shutdown();
+            }
+        }
+
+        try {
+            return reassemble(header, Arrays.asList(decodedFrames));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Decoded payload doesn't match the sequence header", e);
+        }
+    }
+
+    /**
+     * Reassembles the whole payload from the payloads decoded from the images of a sequence.
+     *
+     * @param header        the SequenceHeader read from the first image
+     * @param decodedFrames payloads decoded from the images (index is equal to order of images).
+     *                      The first entry still contains the header. Entries of images not listed in the header
+     *                      may be null.
+     * @return the payload
+     * @throws IllegalArgumentException if the layout is unknown or a needed entry is missing or too short
+     */
+    public static byte[] reassemble(SequenceHeader header, List<byte[]> decodedFrames) {
+        switch (header.getLayout()) {
+            case SequenceHeader.LAYOUT_STRIPED:
+                return shuffleReassembly(header, decodedFrames, 0, header.getPayloadLength());
+            case SequenceHeader.LAYOUT_SEQUENTIAL:
+                ByteArrayOutputStream payload = new ByteArrayOutputStream(header.getPayloadLength());
+                for (int frame : header.getDataFrames()) {
+                    byte[] chunk = decodedFrames.get(frame);
+                    int offset = frame == 0 ? header.length() : 0;
+                    if (chunk == null || chunk.length < offset)
+                        throw new IllegalArgumentException("Payload of image " + frame + " is missing");
+                    payload.write(chunk, offset, chunk.length - offset);
                 }
+                if (payload.size() != header.getPayloadLength())
+                    throw new IllegalArgumentException("Expected " + header.getPayloadLength() + " bytes, but got " +
+                            payload.size());
+                return payload.toByteArray();
+            default:
+                throw new IllegalArgumentException("Unknown layout " + header.getLayout());
+        }
+    }
+
+    /**
+     * <p>Determines the payload capacity of every image in imageList (see {@link ImageSteg#getImageCapacity(byte[])}).</p>
+     * <p>The capacities are computed in parallel using up to nThreads threads. Wherever possible they are read
+     * from the images headers instead of decoding the images.</p>
+     *
+     * @param imageList list of images
+     * @param nThreads  max number of threads to use
+     * @return CapacityPlan of imageList
+     * @throws IOException if IO Exception is thrown during read operations
+     * @throws NoImageException read failed
+     * @throws UnsupportedImageTypeException UnsupportedImageTypeException
+     */
+    public static CapacityPlan capacityPlan(List<byte[]> imageList, int nThreads)
+            throws IOException, NoImageException, UnsupportedImageTypeException {
+        int[] capacities = new int[imageList.size()];
+
+        if (nThreads <= 1 || imageList.size() <= 1) {
+            ImageSteg imageSteg = new ImageSteg();
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = imageSteg.getImageCapacity(imageList.get(i));
+            }
+            return new CapacityPlan(capacities);
+        }
+
+        ExecutorService taskExecutor = Executors.newFixedThreadPool(Math.min(nThreads, imageList.size()));
+        List<Callable<Integer>> taskList = new ArrayList<>();
+        for (byte[] image : imageList) {
+            //ImageSteg is not threads safe yet, so need to make an instance for each task
+            taskList.add(() -> new ImageSteg().getImageCapacity(image));
+        }
+
+        try {
+            List<Future<Integer>> futureList = taskExecutor.invokeAll(taskList);
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = futureList.get(i).get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while computing image capacities");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof NoImageException)
+                throw (NoImageException) cause;
+            if (cause instanceof UnsupportedImageTypeException)
+                throw (UnsupportedImageTypeException) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            taskExecutor.shutdown();
+        }
+        return new CapacityPlan(capacities);
+    }
+
+    /**
+     * <p>Determines the payload capacity of every image in imageList, which are already decoded
+     * (see {@link ImageSteg#getImageCapacity(BufferedImage)}).</p>
+     * <p>For images without alpha channel (like frames of a video) this only depends on their size.</p>
+     *
+     * @param imageList list of images
+     * @return CapacityPlan of imageList
+     * @throws UnsupportedImageTypeException UnsupportedImageTypeException
+     */
+    public static CapacityPlan imageCapacityPlan(List<BufferedImage> imageList) throws UnsupportedImageTypeException {
+        int[] capacities = new int[imageList.size()];
+        ImageSteg imageSteg = new ImageSteg();
+        for (int i = 0; i < capacities.length; i++) {
+            capacities[i] = imageSteg.getImageCapacity(imageList.get(i));
+        }
+        return new CapacityPlan(capacities);
+    }
+
+    /**
+     * <p>Takes a payload and distributes it striped over the images of the given CapacityPlan.</p>
+     * <p>The payload is split in blocks of blockSize bytes that are assigned to the images carrying payload
+     * in turns. The first image additionally carries a {@link SequenceHeader} in front of its blocks that
+     * lists the images carrying payload. Since every image only holds whole blocks at fixed positions, the images
+     * can be en- and decoded independently from each other and a range of the payload can be decoded from
+     * the images holding it (see {@link SequenceHeader#getDataFrames(int, int)}).</p>
+     * <p>Images that cannot hold the number of blocks every image has to carry are skipped. Since every used image
+     * carries the same number of blocks (give or take one), less payload fits than with
+     * {@link #sequenceDistribution(CapacityPlan, byte[])} if the capacities of the images differ a lot.</p>
+     *
+     * @param capacityPlan capacities of the images to be used to split payload
+     * @param payload      payload to be split
+     * @param blockSize    size of a block in bytes
+     * @return list of payload splits (index is equal to order of images in capacityPlan).
+     * Entry is Null if no payload for image
+     * @throws ImageCapacityException if the payload (and header) doesn't fit in the images
+     * @see #shuffleReassembly(SequenceHeader, List, int, int)
+     */
+    public static List<byte[]> shuffleDistribution(CapacityPlan capacityPlan, byte[] payload, int blockSize)
+            throws ImageCapacityException {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be at least 1");
+
+        int frameCount = capacityPlan.getFrameCount();
+        int headerLength = SequenceHeader.length(frameCount);
+        if (frameCount == 0 || capacityPlan.getFrameCapacity(0) < headerLength)
+            throw new ImageCapacityException("First image can't hold the sequence header of " + headerLength + " bytes");
+
+        // capacity for blocks of every image, the first one also holds the header
+        int[] blockCapacity = new int[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            blockCapacity[i] = (capacityPlan.getFrameCapacity(i) - (i == 0 ? headerLength : 0)) / blockSize;
+        }
+
+        // drop images that can't hold their share of blocks until every remaining image can
+        int blockCount = (payload.length + blockSize - 1) / blockSize;
+        int[] dataFrames = IntStream.range(0, frameCount).filter(i -> blockCapacity[i] > 0).toArray();
+        while (blockCount > 0) {
+            if (dataFrames.length == 0)
+                throw new ImageCapacityException("Payload of " + payload.length + " bytes doesn't fit in blocks of " +
+                        blockSize + " bytes into the images");
+
+            int blocksPerFrame = (blockCount + dataFrames.length - 1) / dataFrames.length;
+            int[] remaining = Arrays.stream(dataFrames).filter(i -> blockCapacity[i] >= blocksPerFrame).toArray();
+            if (remaining.length == dataFrames.length)
+                break;
+            dataFrames = remaining;
+        }
+        if (blockCount == 0)
+            dataFrames = new int[0];
+
+        // assign block k to dataFrames[k % dataFrames.length]
+        ByteArrayOutputStream[] chunks = new ByteArrayOutputStream[frameCount];
+        chunks[0] = new ByteArrayOutputStream();
+        chunks[0].write(
+                new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, payload.length, blockSize, frameCount, dataFrames)
+                        .toBytes(), 0, headerLength);
+        for (int block = 0; block < blockCount; block++) {
+            int frame = dataFrames[block % dataFrames.length];
+            if (chunks[frame] == null)
+                chunks[frame] = new ByteArrayOutputStream();
+
+            int offset = block * blockSize;
+            chunks[frame].write(payload, offset, Math.min(blockSize, payload.length - offset));
+        }
+
+        List<byte[]> payloadSplitted = new ArrayList<>();
+        for (ByteArrayOutputStream chunk : chunks) {
+            payloadSplitted.add(chunk == null ? null : chunk.toByteArray());
         }
         return payloadSplitted;
     }
 
-    public static List<byte[]> shuffleDistribution(){
-        return null;
+    /**
+     * <p>Reassembles the bytes [from, to) of a payload that was distributed using
+     * {@link #shuffleDistribution(CapacityPlan, byte[], int)}.</p>
+     * <p>Only the entries of the images returned by {@link SequenceHeader#getDataFrames(int, int)} and
+     * the first entry (if it holds blocks) are read, all other entries may be null.</p>
+     *
+     * @param header        the SequenceHeader read from the first image
+     * @param decodedFrames payloads decoded from the images (index is equal to order of images).
+     *                      The first entry still contains the header.
+     * @param from          first byte of the payload (inclusive)
+     * @param to            last byte of the payload (exclusive)
+     * @return the bytes [from, to) of the payload
+     * @throws IllegalArgumentException if a needed entry is missing or too short
+     */
+    public static byte[] shuffleReassembly(SequenceHeader header, List<byte[]> decodedFrames, int from, int to) {
+        if (header.getLayout() != SequenceHeader.LAYOUT_STRIPED)
+            throw new IllegalArgumentException("Payload is not striped (layout " + header.getLayout() + ")");
+
+        int[] dataFrames = header.getDataFrames();
+        int blockSize = header.getBlockSize();
+        byte[] result = new byte[to - from];
+
+        int position = from;
+        while (position < to) {
+            int block = position / blockSize;
+            int frame = dataFrames[block % dataFrames.length];
+            byte[] chunk = decodedFrames.get(frame);
+            // the header in front of the blocks of the first image
+            int chunkOffset = (frame == 0 ? header.length() : 0) + (block / dataFrames.length) * blockSize;
+            int offsetInBlock = position - block * blockSize;
+            int length = Math.min(blockSize - offsetInBlock, to - position);
+
+            if (chunk == null || chunk.length < chunkOffset + offsetInBlock + length)
+                throw new IllegalArgumentException("Payload of image " + frame + " is missing or incomplete");
+
+            System.arraycopy(chunk, chunkOffset + offsetInBlock, result, position - from, length);
+            position += length;
+        }
+        return result;
     }
 }
@@ -41,4 +41,14 @@ public interface ImageStegIO {
      */
     BuffImgEncoder getEncoder(long seed) throws UnsupportedImageTypeException, IOException, NoImageException;
 
+    /**
+     * <p>Returns the number of pixels the encoder returned by getEncoder() could use to encode bits.</p>
+     * <p>Implementations should avoid decoding the whole image if this number can be determined otherwise.</p>
+     * @return number of pixels usable for encoding
+     * @throws UnsupportedImageTypeException if the images type is not supported by any known encoder / overlay
+     * @throws IOException if there was an error during reading of input
+     * @throws NoImageException if no image could be read from input
+     */
+    int getPixelCapacity() throws UnsupportedImageTypeException, IOException, NoImageException;
+
 }
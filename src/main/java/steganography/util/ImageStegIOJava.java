@@ -14,6 +14,7 @@ import steganography.image.overlays.TableOverlay;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.image.BufferedImage;
@@ -56,6 +57,21 @@ public class ImageStegIOJava implements ImageStegIO{
             Arrays.asList("bmp", "BMP", "gif", "GIF", "png", "PNG")
     );
 
+    /**
+     * A set of BufferedImage types that are encoded using PixelBit. Has to match the types in getEncoder().
+     */
+    private static final Set<Integer> PIXEL_BIT_TYPES = new HashSet<>(
+            Arrays.asList(
+                    BufferedImage.TYPE_4BYTE_ABGR,
+                    BufferedImage.TYPE_3BYTE_BGR,
+                    BufferedImage.TYPE_INT_ARGB,
+                    BufferedImage.TYPE_INT_RGB,
+                    BufferedImage.TYPE_INT_BGR,
+                    BufferedImage.TYPE_4BYTE_ABGR_PRE,
+                    BufferedImage.TYPE_INT_ARGB_PRE
+            )
+    );
+
     /**
      * <p>Creates an object that exists to handle reading and writing of BufferedImages to and from byte arrays
      * as well as choosing the appropriate encoders (and their overlays) for the given image. It holds on to the image
@@ -69,6 +85,20 @@ public class ImageStegIOJava implements ImageStegIO{
         this.useTransparent = useTransparent;
     }
 
+    /**
+     * <p>Creates an object that handles an image that is already decoded (e.g. a frame of a video).
+     * Encoders returned by this object change the given image in place.</p>
+     * <p>Since there is no input format, getImageAsByteArray() writes the image as PNG.</p>
+     * @param image the image to handle
+     * @param useTransparent if true, returned encoders will use fully transparent pixels
+     */
+    public ImageStegIOJava(BufferedImage image, boolean useTransparent) {
+        this.input = null;
+        this.useTransparent = useTransparent;
+        this.bufferedImage = image;
+        this.format = "png";
+    }
+
     private void processImage(byte[] carrier)
             throws IOException, NoImageException, UnsupportedImageTypeException {
 
@@ -167,7 +197,7 @@ public class ImageStegIOJava implements ImageStegIO{
 
         switch (type) {
 
-            // Types for PixelBit Algorithm
+            // Types for PixelBit Algorithm (keep PIXEL_BIT_TYPES in sync)
             //----------------------------------------------------------------------------------
             case BufferedImage.TYPE_4BYTE_ABGR:
             case BufferedImage.TYPE_3BYTE_BGR:
@@ -209,6 +239,116 @@ public class ImageStegIOJava implements ImageStegIO{
         }
     }
 
+    /**
+     * <p>Returns the number of pixels the encoder returned by getEncoder() could use to encode bits.</p>
+     * <p>If the image was not processed yet and its header describes a type without alpha channel that is
+     * handled by PixelBit, the number is read from the header without decoding the image. Otherwise the image
+     * is processed (if necessary) and its pixels are counted.</p>
+     * @return number of pixels usable for encoding
+     * @throws UnsupportedImageTypeException if the images type is not supported by any known encoder / overlay
+     * @throws IOException if there was an error during reading of input
+     * @throws NoImageException if no image could be read from input
+     */
+    @Override
+    public int getPixelCapacity() throws UnsupportedImageTypeException, IOException, NoImageException {
+        if (this.bufferedImage == null) {
+            int headerCapacity = getPixelCapacityFromHeader();
+            if (headerCapacity >= 0)
+                return headerCapacity;
+        }
+
+        if (this.bufferedImage == null)
+            processImage(this.input);
+        if (!PIXEL_BIT_TYPES.contains(this.bufferedImage.getType()))
+            return getEncoder(0).getOverlay().available();
+
+        return getPixelBitCapacity();
+    }
+
+    /**
+     * <p>Returns the encoder (and overlay) for an image of a type that is handled by PixelBit.</p>
+     * <p>Unlike getEncoder(), this never reads input, so the image must have been given to the constructor
+     * or processed before. Indexed images (GIFs) are not supported.</p>
+     * @param seed to hand to the overlay
+     * @return PixelBit with set PixelCoordinateOverlay
+     * @throws UnsupportedImageTypeException if the images type is not handled by PixelBit
+     */
+    public BuffImgEncoder getPixelBitEncoder(long seed) throws UnsupportedImageTypeException {
+        checkPixelBitType();
+        return new PixelBit(getOverlay(this.bufferedImage, seed));
+    }
+
+    /**
+     * <p>Returns the number of pixels the encoder returned by getPixelBitEncoder() could use to encode bits.</p>
+     * <p>Like getPixelBitEncoder(), this never reads input.</p>
+     * @return number of pixels usable for encoding
+     * @throws UnsupportedImageTypeException if the images type is not handled by PixelBit
+     */
+    public int getPixelBitCapacity() throws UnsupportedImageTypeException {
+        checkPixelBitType();
+
+        // count directly instead of creating (and shuffling) the pixel order of the overlay
+        if (this.useTransparent || !this.bufferedImage.getColorModel().hasAlpha())
+            return this.bufferedImage.getWidth() * this.bufferedImage.getHeight();
+
+        int count = 0;
+        for (int y = 0; y < this.bufferedImage.getHeight(); y++) {
+            for (int x = 0; x < this.bufferedImage.getWidth(); x++) {
+                if (((this.bufferedImage.getRGB(x, y) >> 24) & 0xff) != 0)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private void checkPixelBitType() throws UnsupportedImageTypeException {
+        if (this.bufferedImage == null)
+            throw new IllegalStateException("Image was not processed yet");
+        if (!PIXEL_BIT_TYPES.contains(this.bufferedImage.getType()))
+            throw new UnsupportedImageTypeException("Image type (BufferedImage.TYPE = " + this.bufferedImage.getType() +
+                    ") is not supported without encoding the image");
+    }
+
+    /**
+     * Reads the number of usable pixels from the images header, if that is possible without decoding it.
+     * This is the case for images that would be decoded to a type using PixelBit (see getEncoder())
+     * and either have no alpha channel or transparent pixels are used anyway.
+     * @return number of usable pixels or -1 if it cannot be determined from the header
+     * @throws IOException if there was an error during reading of input
+     */
+    private int getPixelCapacityFromHeader() throws IOException {
+        try(ImageInputStream imageInputStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(this.input))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext())
+                return -1;
+
+            ImageReader reader = readers.next();
+            try {
+                // let processImage() throw the appropriate exception
+                if (!formatSupported(reader.getFormatName()))
+                    return -1;
+
+                reader.setInput(imageInputStream);
+
+                // reader.read(0) decodes to the first of these types
+                Iterator<ImageTypeSpecifier> imageTypes = reader.getImageTypes(0);
+                if (!imageTypes.hasNext())
+                    return -1;
+
+                ImageTypeSpecifier imageType = imageTypes.next();
+                if (!PIXEL_BIT_TYPES.contains(imageType.getBufferedImageType()))
+                    return -1;
+                if (imageType.getColorModel().hasAlpha() &&
+                        (!this.useTransparent || reader.getFormatName().equalsIgnoreCase("bmp")))
+                    return -1;
+
+                return reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
     /**
      * Returns an overlay according to the global variable useTransparent
      * @param bufferedImage BufferedImage to hand to overlay
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>Compact index of a payload that is distributed over an image sequence. It is written in front of
+ * the payload of the first image of the sequence.</p>
+ * <p>The header is composed like this (big endian):</p>
+ * <ul>
+ *     <li>4 bytes: signature</li>
+ *     <li>1 byte: layout of the payload</li>
+ *     <li>4 bytes: length of the payload in bytes</li>
+ *     <li>4 bytes: block size in bytes (striped layout, 0 otherwise)</li>
+ *     <li>4 bytes: number of images in the sequence</li>
+ *     <li>(number of images + 7) / 8 bytes: bitmap of the images carrying payload</li>
+ * </ul>
+ */
+public class SequenceHeader {
+
+    /**
+     * Payload is split in parts that fill up the images carrying payload one after another.
+     */
+    public static final byte LAYOUT_SEQUENTIAL = 1;
+
+    /**
+     * Payload is split in blocks of blockSize which are assigned to the images carrying payload
+     * in turns (round robin).
+     */
+    public static final byte LAYOUT_STRIPED = 2;
+
+    private static final int SIGNATURE = 0x53514844;
+    private static final int FIXED_LENGTH = 17;
+
+    private final byte layout;
+    private final int payloadLength;
+    private final int blockSize;
+    private final int frameCount;
+    private final int[] dataFrames;
+
+    /**
+     * Creates a SequenceHeader
+     * @param layout        layout of the payload (e.g. LAYOUT_STRIPED)
+     * @param payloadLength length of the payload in bytes
+     * @param blockSize     size of a block in bytes
+     * @param frameCount    number of images in the sequence
+     * @param dataFrames    indices of the images carrying payload in ascending order
+     */
+    public SequenceHeader(byte layout, int payloadLength, int blockSize, int frameCount, int[] dataFrames) {
+        this.layout = layout;
+        this.payloadLength = payloadLength;
+        this.blockSize = blockSize;
+        this.frameCount = frameCount;
+        this.dataFrames = dataFrames.clone();
+    }
+
+    /**
+     * Returns the number of bytes a SequenceHeader for a sequence of frameCount images takes up.
+     * @param frameCount number of images in the sequence
+     * @return length of the header in bytes
+     */
+    public static int length(int frameCount) {
+        return FIXED_LENGTH + bitmapLength(frameCount);
+    }
+
+    private static int bitmapLength(int frameCount) {
+        // long arithmetic, frameCount + 7 overflows for counts read from corrupt payloads
+        return (int) ((frameCount + 7L) / 8);
+    }
+
+    /**
+     * Returns the number of bytes this header takes up.
+     * @return length of the header in bytes
+     */
+    public int length() {
+        return length(this.frameCount);
+    }
+
+    /**
+     * Returns the header as a byte array
+     * @return header as bytes
+     */
+    public byte[] toBytes() {
+        BitSet bitmap = new BitSet(this.frameCount);
+        for (int frame : this.dataFrames) {
+            bitmap.set(frame);
+        }
+        // BitSet.toByteArray() omits trailing zero bytes
+        byte[] bitmapBytes = Arrays.copyOf(bitmap.toByteArray(), bitmapLength(this.frameCount));
+
+        return ByteBuffer.allocate(length())
+                .putInt(SIGNATURE)
+                .put(this.layout)
+                .putInt(this.payloadLength)
+                .putInt(this.blockSize)
+                .putInt(this.frameCount)
+                .put(bitmapBytes)
+                .array();
+    }
+
+    /**
+     * Reads a SequenceHeader from the beginning of the given payload of the first image of a sequence.
+     * @param firstPayload payload decoded from the first image
+     * @return the SequenceHeader or null, if firstPayload does not start with a valid SequenceHeader
+     *         (e.g. the layout is unknown or no image carries the payload)
+     */
+    public static SequenceHeader read(byte[] firstPayload) {
+        if (firstPayload == null || firstPayload.length < FIXED_LENGTH)
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(firstPayload);
+        if (buffer.getInt() != SIGNATURE)
+            return null;
+
+        byte layout = buffer.get();
+        int payloadLength = buffer.getInt();
+        int blockSize = buffer.getInt();
+        int frameCount = buffer.getInt();
+        if (layout != LAYOUT_SEQUENTIAL && layout != LAYOUT_STRIPED)
+            return null;
+        // blocks are assigned by dividing by blockSize
+        if (payloadLength < 0 || blockSize < 0 || (layout == LAYOUT_STRIPED && blockSize < 1))
+            return null;
+        if (frameCount < 1 || firstPayload.length < length(frameCount))
+            return null;
+
+        byte[] bitmapBytes = new byte[bitmapLength(frameCount)];
+        buffer.get(bitmapBytes);
+        int[] dataFrames = BitSet.valueOf(bitmapBytes).stream().filter(frame -> frame < frameCount).toArray();
+        // the payload has to be carried by some image
+        if (payloadLength > 0 && dataFrames.length == 0)
+            return null;
+
+        return new SequenceHeader(layout, payloadLength, blockSize, frameCount, dataFrames);
+    }
+
+    /**
+     * Returns the indices of the images that carry the bytes [from, to) of the payload.
+     * For layouts other than LAYOUT_STRIPED the position of the bytes is unknown and all images carrying
+     * payload are returned.
+     * @param from first byte of the payload (inclusive)
+     * @param to   last byte of the payload (exclusive)
+     * @return indices of the images in ascending order
+     */
+    public int[] getDataFrames(int from, int to) {
+        if (from < 0 || to > this.payloadLength || from > to)
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") for payload of length " +
+                    this.payloadLength);
+        if (from == to)
+            return new int[0];
+        if (this.layout != LAYOUT_STRIPED)
+            return getDataFrames();
+
+        int firstBlock = from / this.blockSize;
+        int lastBlock = (to - 1) / this.blockSize;
+        // a range of at least dataFrames.length blocks touches every image
+        if (lastBlock - firstBlock + 1 >= this.dataFrames.length)
+            return getDataFrames();
+
+        return Arrays.stream(this.dataFrames)
+                .filter(frame -> {
+                    int position = Arrays.binarySearch(this.dataFrames, frame);
+                    for (int block = firstBlock; block <= lastBlock; block++) {
+                        if (block % this.dataFrames.length == position)
+                            return true;
+                    }
+                    return false;
+                })
+                .toArray();
+    }
+
+    /**
+     * Returns the layout of the payload
+     * @return layout (e.g. LAYOUT_STRIPED)
+     */
+    public byte getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the length of the whole payload
+     * @return length in bytes
+     */
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Returns the size of the blocks the payload was split in
+     * @return block size in bytes
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of images in the sequence
+     * @return number of images
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the indices of all images carrying payload
+     * @return indices of the images in ascending order
+     */
+    public int[] getDataFrames() {
+        return dataFrames.clone();
+    }
+}
@@ -18,6 +18,7 @@
 
 package steganography.video;
 
+import com.github.kokorin.jaffree.Rational;
 import com.github.kokorin.jaffree.StreamType;
 import com.github.kokorin.jaffree.ffprobe.FFprobe;
 import com.github.kokorin.jaffree.ffprobe.FFprobeResult;
@@ -27,8 +28,13 @@ import steganography.video.exceptions.VideoNotFoundException;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author : Enrico Gamil Toros de Chadarevian
@@ -39,14 +45,31 @@ import java.util.List;
  * This class represents a Video
  **/
 public class Video {
+    /**
+     * Number of FFprobe results kept, see {@link #probe()}
+     */
+    private static final int PROBE_CACHE_SIZE = 16;
+    private static final Map<String, FFprobeResult> PROBE_CACHE =
+            new LinkedHashMap<String, FFprobeResult>(PROBE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FFprobeResult> eldest) {
+                    return size() > PROBE_CACHE_SIZE;
+                }
+            };
+    /**
+     * Number of times FFprobe was run by {@link #probe()}, to check the cache
+     */
+    private static final AtomicInteger PROBE_COUNT = new AtomicInteger();
+
     private final File ffmpegBin;
     private float frameRate;
     private long frameCount;
+    private long packetCount;
+    private boolean constantFrameRate;
     private int frameWidth;
     private int frameHeight;
     private Long timebase;
     private final byte[] videoByteArray;
-    private File audioFile;
     private String pixelformat;
     private String codec;
     private boolean hasAudioStream = false;
@@ -76,15 +99,7 @@ public class Video {
      * Uses FFProbe to read information about a Video and saves them as attributes of this Object
      */
     private void analyseVideo() throws VideoNotFoundException {
-        InputStream inputStream = new ByteArrayInputStream(videoByteArray);
-
-        FFprobe ffprobe;
-        ffprobe = FFprobe.atPath(ffmpegBin.toPath());
-
-        FFprobeResult result = ffprobe
-                .setInput(inputStream)
-                .setShowStreams(true)
-                .execute();
+        FFprobeResult result = probe();
 
         //Check if given Video has no Streams
         if (result.getStreams().isEmpty())
@@ -102,8 +117,14 @@ public class Video {
             throw new VideoNotFoundException("No Video Stream in given Video");
 
         //Saving some info on frames
-        this.frameCount = result.getStreams().get(0).getNbFrames();
+        //Not every container states the number of frames (e.g. Matroska)
+        Integer nbFrames = result.getStreams().get(0).getNbFrames();
+        this.frameCount = nbFrames == null ? 0 : nbFrames;
+        Integer readPackets = result.getStreams().get(0).getNbReadPackets();
+        this.packetCount = readPackets == null ? -1 : readPackets;
         this.frameRate = (result.getStreams().get(0).getAvgFrameRate()).floatValue();
+        Rational realFrameRate = result.getStreams().get(0).getRFrameRate();
+        this.constantFrameRate = realFrameRate != null && realFrameRate.floatValue() == this.frameRate;
         this.frameWidth = result.getStreams().get(0).getWidth();
         this.frameHeight = result.getStreams().get(0).getHeight();
         this.codec = result.getStreams().get(0).getCodecName();
@@ -112,6 +133,63 @@ public class Video {
         this.timebase = Long.valueOf(strings[1]);
     }
 
+    /**
+     * Runs FFprobe on the Video. The results of the last Videos are kept by their content, so the same Video
+     * (e.g. to get its capacity, encode into it and check the result) is only probed once. FFprobe counts the
+     * packets of the streams, so it demuxes the whole Video, but doesn't decode it.
+     *
+     * @return result of FFprobe showing the streams of the Video and their number of packets
+     */
+    private FFprobeResult probe() {
+        String key = getProbeKey();
+        synchronized (PROBE_CACHE) {
+            FFprobeResult cached = PROBE_CACHE.get(key);
+            if (cached != null)
+                return cached;
+        }
+
+        PROBE_COUNT.incrementAndGet();
+        FFprobeResult result = FFprobe.atPath(ffmpegBin.toPath())
+                .setInput(new ByteArrayInputStream(videoByteArray))
+                .setShowStreams(true)
+                .setCountPackets(true)
+                .execute();
+        synchronized (PROBE_CACHE) {
+            PROBE_CACHE.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of times FFprobe was run to analyse a Video, results taken from the cache are not counted
+     */
+    static int getProbeCount() {
+        return PROBE_COUNT.get();
+    }
+
+    /**
+     * Removes all results of FFprobe from the cache
+     */
+    static void clearProbeCache() {
+        synchronized (PROBE_CACHE) {
+            PROBE_CACHE.clear();
+        }
+    }
+
+    /**
+     * @return key identifying the content of the Video and the FFprobe used
+     */
+    private String getProbeKey() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(videoByteArray);
+            return ffmpegBin.getAbsolutePath() + "|" + videoByteArray.length + "|" +
+                    Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-256 is supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Get the frame rate of the Video
      *
@@ -122,14 +200,36 @@ public class Video {
     }
 
     /**
-     * Get the number of frames in the Video
+     * Get the number of frames in the Video stated by the container
      *
-     * @return number of frames as integer
+     * @return number of frames as integer, 0 if the container doesn't state it
      */
     public long getFrameCount() {
         return frameCount;
     }
 
+    /**
+     * Get the number of packets of the video stream counted by FFprobe. Unlike the number of frames stated by
+     * the container, it is the number of frames found in the stream.
+     *
+     * @return number of packets, -1 if FFprobe didn't count them
+     */
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * Checks if decoding the Video at its frame rate gives exactly the number of frames stated by the container.
+     * This is the case if the container states the number of frames, it matches the number of packets of the
+     * video stream and the frame rate is constant. Otherwise FFmpeg drops or duplicates frames to keep the
+     * average frame rate, or the container states more frames than there are.
+     *
+     * @return true if {@link #getFrameCount()} is the number of frames decoded
+     */
+    public boolean hasExactFrameCount() {
+        return frameCount > 0 && frameCount == packetCount && constantFrameRate;
+    }
+
     /**
      * Get the Frame Width
      *
@@ -157,24 +257,6 @@ public class Video {
         return timebase;
     }
 
-    /**
-     * Get the Audio stream of the Video (only one stream supported)
-     *
-     * @return get audio of video
-     */
-    public File getAudioFile() {
-        return audioFile;
-    }
-
-    /**
-     * Set the audio file of the Video
-     *
-     * @param audioFile File of audio
-     */
-    public void setAudioFile(File audioFile) {
-        this.audioFile = audioFile;
-    }
-
     /**
      * Get the byte array of the Video
      *
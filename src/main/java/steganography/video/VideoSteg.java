@@ -27,20 +27,26 @@ import steganography.image.exceptions.ImageCapacityException;
 import steganography.image.exceptions.ImageWritingException;
 import steganography.image.exceptions.NoImageException;
 import steganography.image.exceptions.UnsupportedImageTypeException;
+import steganography.util.CapacityPlan;
 import steganography.util.ImageSequenceUtils;
+import steganography.util.SequenceHeader;
 import steganography.video.encoders.IDecoder;
 import steganography.video.encoders.IEncoder;
+import steganography.video.encoders.PipelinedVideoEncoder;
 import steganography.video.encoders.VideoDecoder;
 import steganography.video.encoders.VideoEncoder;
 import steganography.video.exceptions.UnsupportedVideoTypeException;
 import steganography.video.exceptions.VideoCapacityException;
 import steganography.video.exceptions.VideoNotFoundException;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.InterruptedIOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
 
@@ -54,6 +60,8 @@ public class VideoSteg implements Steganography {
     private int maxEncodingThreads = 1;
     private int maxDecodingThreads = 1;
     private boolean debug = false;
+    private boolean pipelined = false;
+    private boolean passThrough = false;
     private long startTime = System.currentTimeMillis();
     private File ffmpegBin = new File("src/main/resources");
     private final long seed = ImageSteg.DEFAULT_SEED;
@@ -82,114 +90,120 @@ public class VideoSteg implements Steganography {
     public byte[] encode(byte[] carrier, byte[] payload, long seed)
             throws IOException, VideoCapacityException, UnsupportedImageTypeException,
             NoImageException, ImageWritingException, ImageCapacityException, VideoNotFoundException, UnsupportedVideoTypeException {
-        //Decode Video to Single Frames
         Video video = new Video(carrier, ffmpegBin);
+        //The pipeline needs the number of frames before decoding, otherwise they are counted by decoding them
+        if ((pipelined || passThrough) && !video.hasExactFrameCount() && debug)
+            log("Number of frames is not exact, decoding all frames instead of using the pipeline");
+        if ((pipelined || passThrough) && video.hasExactFrameCount()) {
+            PipelinedVideoEncoder pipelinedVideoEncoder = new PipelinedVideoEncoder(video, ffmpegBin, debug);
+            pipelinedVideoEncoder.setPassThrough(passThrough);
+            return pipelinedVideoEncoder.encode(payload, seed, maxEncodingThreads);
+        }
+
+        //Decode Video to Single Frames
         //List used to save the single frames decoded from the carrier
         IDecoder videoDecoder = new VideoDecoder(video, ffmpegBin, debug);
-        List<byte[]> imageList = videoDecoder.decodeVideoToFrames(maxDecodingThreads);
+        List<BufferedImage> imageList = videoDecoder.decodeVideoToImages();
         if (debug) {
             log("Decoding Video Frames to images....");
             log("Video decoded in: " + (System.currentTimeMillis() - startTime) + "ms" + " (" + ((System.currentTimeMillis() - startTime) / 1000) + "s)");
             log("Encoding secret message into images...");
         }
-        List<byte[]> stegImagesList = encodeUsingHenkAlgo(imageList, payload, seed);
+        List<BufferedImage> stegImagesList = encodeUsingHenkAlgo(imageList, payload, seed);
         if (debug) {
             startTime = System.currentTimeMillis();
             log("All " + stegImagesList.size() + " images encoded in: " + (System.currentTimeMillis() - startTime) + "ms" + " (" + ((System.currentTimeMillis() - startTime) / 1000) + "s)");
         }
         //Encode Images to Video
         IEncoder videoEncoder = new VideoEncoder(video, ffmpegBin, debug);
-        return videoEncoder.encodeFrames(stegImagesList);
+        return videoEncoder.encodeImages(stegImagesList);
     }
 
     /**
-     * Encodes a given list of byte[] of Pictures using the "Henk-Algorithm"
+     * Encodes a given list of Pictures using the "Henk-Algorithm".
+     * The payload is encoded into the pictures in place.
      *
-     * @param imageList List of Pictures as byte[]
+     * @param imageList List of Pictures
      * @param payload   Payload (secret) as byte[]
      * @param seed      Seed to be used for distribution
      * @return Encoded list of Pictures
      */
-    private List<byte[]> encodeUsingHenkAlgo(List<byte[]> imageList, byte[] payload, long seed)
-            throws IOException, VideoCapacityException, UnsupportedImageTypeException,
-            NoImageException, ImageWritingException, ImageCapacityException {
-        long maxVideoCapacity = getVideoCapacity(imageList);
+    private List<BufferedImage> encodeUsingHenkAlgo(List<BufferedImage> imageList, byte[] payload, long seed)
+            throws IOException, VideoCapacityException, UnsupportedImageTypeException, ImageCapacityException {
+        //Capacities are computed once and reused for the check and the distribution
+        CapacityPlan capacityPlan = ImageSequenceUtils.imageCapacityPlan(imageList);
+        long maxVideoCapacity = capacityPlan.getTotalCapacity() - SequenceHeader.length(imageList.size());
         if (payload.length > maxVideoCapacity)
             throw new VideoCapacityException("Payload is too big for carrier. " + "Max Carrier capacity: " + maxVideoCapacity + " Bytes. "
                     + "Payload Bytes: " + payload.length);
+        //The first frame holds a sequence header listing the frames that carry payload
+        List<byte[]> payloadChunk = ImageSequenceUtils.indexedDistribution(capacityPlan, payload);
 
         //Single Threaded
         if (maxEncodingThreads == 1) {
-            List<byte[]> stegImageList = new ArrayList<>();
-            List<byte[]> payloadChunk = ImageSequenceUtils.sequenceDistribution(imageList, payload);
-            int i = 0;
-            for (byte[] image : imageList) {
-                if (payloadChunk.get(i) != null) {
-                    ImageSteg imageSteg = new ImageSteg();
-                    stegImageList.add(imageSteg.encode(image, payloadChunk.get(i), seed));
-                    i++;
-                } else {
-                    stegImageList.add(image);
-                }
+            ImageSteg imageSteg = new ImageSteg();
+            for (int i = 0; i < imageList.size(); i++) {
+                if (payloadChunk.get(i) != null)
+                    imageSteg.encode(imageList.get(i), payloadChunk.get(i), seed);
             }
-            return stegImageList;
         } else {
             //Multithreaded
-            return multiThreadingEncode(imageList, payload, seed);
+            multiThreadingEncode(imageList, payloadChunk, seed);
         }
+        return imageList;
     }
 
     /**
      * Multithreaded version of {@link #encodeUsingHenkAlgo(List, byte[], long)}
      *
-     * @param imageList list of images to encode
-     * @param payload   payload in byte[]
-     * @param seed      seed to be used for distribution
-     * @return list of encoded images
-     * @throws IOException if any IO errors
+     * @param imageList    list of images to encode in place
+     * @param payloadChunk payload split for each image (null if image gets no payload)
+     * @param seed         seed to be used for distribution
+     * @throws IOException if the threads were interrupted
+     * @throws UnsupportedImageTypeException if an image has an unsupported type
+     * @throws ImageCapacityException if an image can't hold its payload split
      */
-    private List<byte[]> multiThreadingEncode(List<byte[]> imageList, byte[] payload, long seed)
-            throws IOException, NoImageException, UnsupportedImageTypeException {
+    private void multiThreadingEncode(List<BufferedImage> imageList, List<byte[]> payloadChunk, long seed)
+            throws IOException, UnsupportedImageTypeException, ImageCapacityException {
         ExecutorService taskExecutor = Executors.newFixedThreadPool(maxEncodingThreads);
-        List<byte[]> payloadChunk = ImageSequenceUtils.sequenceDistribution(imageList, payload);
 
-        //Make list of callable tasks that will be run by threads
-        List<Callable<byte[]>> taskList = new ArrayList<>();
+        //Make list of callable tasks that will be run by threads, images without payload are left as they are
+        List<Callable<Void>> taskList = new ArrayList<>();
         for (int i = 0; i < imageList.size(); i++) {
             int finalI = i;
+            if (payloadChunk.get(finalI) == null)
+                continue;
 
-            //Each thread encodes a single image and returns result
+            //Each thread encodes a single image
             taskList.add(() -> {
-                        if (payloadChunk.get(finalI) != null) {
-                            //ImageSteg is not threads safe yet, so need to make an instance for each thread
-                            ImageSteg steganography = new ImageSteg();
-                            return steganography.encode(imageList.get(finalI), payloadChunk.get(finalI), seed);
-                        } else {
-                            return imageList.get(finalI);
-                        }
+                        //ImageSteg is not threads safe yet, so need to make an instance for each thread
+                        new ImageSteg().encode(imageList.get(finalI), payloadChunk.get(finalI), seed);
+                        return null;
                     }
             );
         }
 
         if (debug) {
-            log("All Callable tasks initialized" + System.lineSeparator() + "Running " + maxDecodingThreads + " Threads");
+            log("All Callable tasks initialized" + System.lineSeparator() + "Running " + maxEncodingThreads + " Threads");
         }
 
-        //Execute all tasks and add result to result list
-        List<Future<byte[]>> futureList;
-        List<byte[]> resultList = new ArrayList<>();
+        //Execute all tasks and wait for all results
         try {
-            futureList = taskExecutor.invokeAll(taskList);
-            //Wait for all results
-            for (Future<byte[]> result : futureList) {
-                resultList.add(result.get());
+            for (Future<Void> result : taskExecutor.invokeAll(taskList)) {
+                result.get();
             }
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding frames");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnsupportedImageTypeException)
+                throw (UnsupportedImageTypeException) e.getCause();
+            if (e.getCause() instanceof ImageCapacityException)
+                throw (ImageCapacityException) e.getCause();
+            throw new IllegalStateException(e.getCause());
         } finally {
             taskExecutor.shutdown();
         }
-        return resultList;
     }
 
     /**
@@ -209,103 +223,125 @@ public class VideoSteg implements Steganography {
             throws IOException, VideoNotFoundException, UnsupportedVideoTypeException {
         Video video = new Video(steganographicData, ffmpegBin);
 
-        //Decode Video Frames to pictures
+        //Decode Video Frames to pictures, until the last frame holding payload is decoded
         IDecoder videoDecoder = new VideoDecoder(video, ffmpegBin, debug);
-        List<byte[]> imageList = videoDecoder.decodeVideoToFrames(maxDecodingThreads);
+        PayloadFrames payloadFrames = new PayloadFrames(seed);
+        videoDecoder.decodeVideoToImages(payloadFrames::add);
 
-        return decodeUsingHenkAlgo(imageList, seed);
+        return payloadFrames.decode();
     }
 
     /**
-     * Decode list of images using "Henk-algorithm"
-     *
-     * @param imageList List of images to be decoded
-     * @param seed      seed to use to decode
-     * @return decoded byte[]
-     * @throws IOException If any IO errors
+     * Collects the frames holding payload while the Video is decoded ("Henk-algorithm").
+     * If the first frame holds a sequence header, only the frames listed in it are kept and decoded (in parallel if
+     * multithreading is enabled) once the last of them is reached. Otherwise frames are decoded until one holds no
+     * payload.
      */
-    private byte[] decodeUsingHenkAlgo(List<byte[]> imageList, long seed) throws IOException {
-        if (maxEncodingThreads == 1) {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            int i = 0;
-            for (byte[] bytes : imageList) {
-                Steganography steganography = new ImageSteg();
+    private class PayloadFrames {
+        private final long seed;
+        private int frameCount = 0;
+        private byte[] firstPayload = null;
+
+        //Frames listed in the sequence header
+        private SequenceHeader header = null;
+        private int[] dataFrames;
+        private BufferedImage[] images;
+
+        //Payload decoded so far, if there is no sequence header
+        private ByteArrayOutputStream payload = null;
+
+        PayloadFrames(long seed) {
+            this.seed = seed;
+        }
+
+        /**
+         * @param image next frame of the Video
+         * @return true if further frames are needed
+         */
+        boolean add(BufferedImage image) {
+            int frame = frameCount++;
+            if (frame == 0)
+                return addFirst(image);
+
+            if (header == null) {
                 try {
-                    byteArrayOutputStream.write(steganography.decode(bytes, seed));
-                } catch (UnsupportedEncodingException | UnknownStegFormatException | MediaNotFoundException | UnsupportedMediaTypeException e) {
+                    byte[] framePayload = new ImageSteg().decode(image, seed);
+                    payload.write(framePayload, 0, framePayload.length);
+                } catch (UnknownStegFormatException | UnsupportedMediaTypeException e) {
                     if (debug)
-                        log("Decoded Frame (" + i + "/" + imageList.size() + ")");
-                    return byteArrayOutputStream.toByteArray();
+                        log("No payload in frame " + frame);
+                    return false;
                 }
                 if (debug)
-                    log("Decoded Frame (" + i + "/" + imageList.size() + ")");
-                i++;
+                    log("Decoded Frame (" + frame + ")");
+                return true;
             }
-            return byteArrayOutputStream.toByteArray();
-        } else {
-            return multiThreadingDecode(imageList, seed);
+
+            if (frame < images.length && Arrays.binarySearch(dataFrames, frame) >= 0)
+                images[frame] = image;
+            return frame < dataFrames[dataFrames.length - 1];
         }
-    }
 
-    /**
-     * Multi threaded version of {@link #decodeUsingHenkAlgo(List, long)}
-     *
-     * @param imageList list of images to decode
-     * @param seed      seed to be used to decode
-     * @return decoded byte[]
-     * @throws IOException If any IO errors
-     */
-    private byte[] multiThreadingDecode(List<byte[]> imageList, long seed) throws IOException {
-        ExecutorService taskExecutor = Executors.newFixedThreadPool(maxDecodingThreads);
+        private boolean addFirst(BufferedImage image) {
+            try {
+                firstPayload = new ImageSteg().decode(image, seed);
+            } catch (UnknownStegFormatException | UnsupportedMediaTypeException e) {
+                if (debug)
+                    log("No payload in first frame");
+                return false;
+            }
 
-        //Make list of callable tasks that will be run by threads
-        List<Callable<byte[]>> taskList = new ArrayList<>();
-        for (int i = 0; i < imageList.size(); i++) {
-            int finalI = i;
+            header = SequenceHeader.read(firstPayload);
+            if (header == null) {
+                payload = new ByteArrayOutputStream();
+                payload.write(firstPayload, 0, firstPayload.length);
+                return true;
+            }
 
-            //Each thread decodes a single image and returns result
-            taskList.add(() -> {
-                        try {
-                            //ImageSteg is not threads safe yet, so need to make an instance for each thread
-                            ImageSteg steganography = new ImageSteg();
-                            if (debug)
-                                log("Decoded Frame (" + finalI + "/" + imageList.size() + ")");
-                            return steganography.decode(imageList.get(finalI), seed);
-                        } catch (UnknownStegFormatException e) {
-                            if (debug)
-                                log("Decoded Frame (" + finalI + "/" + imageList.size() + ")");
-                            return null;
-                        }
-                    }
-            );
+            dataFrames = header.getDataFrames();
+            if (dataFrames.length == 0)
+                dataFrames = new int[]{0};
+            //The frame count is read from the payload, so don't trust it for the size of the array
+            images = new BufferedImage[dataFrames[dataFrames.length - 1] + 1];
+            images[0] = image;
+            if (debug)
+                log("Sequence header found, decoding " + dataFrames.length + " of " + header.getFrameCount() + " frames");
+            return dataFrames[dataFrames.length - 1] > 0;
         }
 
-        if (debug) {
-            log("All Callable tasks initialized" + System.lineSeparator() + "Running " + maxDecodingThreads + " Threads");
-        }
+        /**
+         * @return payload of all frames added
+         * @throws IOException if a frame listed in the sequence header is missing or could not be decoded
+         */
+        byte[] decode() throws IOException {
+            if (firstPayload == null)
+                return new byte[0];
+            if (header == null)
+                return payload.toByteArray();
+
+            int lastDataFrame = dataFrames[dataFrames.length - 1];
+            if (frameCount <= lastDataFrame)
+                throw new IOException("Sequence header lists frame " + lastDataFrame + ", but the Video ended after " +
+                        frameCount + " frames");
+            //Frames not listed in the sequence header are null, there are none behind the last listed one
+            List<BufferedImage> imageList = new AbstractList<BufferedImage>() {
+                @Override
+                public BufferedImage get(int index) {
+                    return index < images.length ? images[index] : null;
+                }
 
-        //Execute all tasks
-        List<Future<byte[]>> futureList;
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        try {
-            futureList = taskExecutor.invokeAll(taskList);
-            //Wait for all results
-            for (Future<byte[]> result : futureList) {
-                byte[] futureByte = result.get();
-                if (futureByte != null) //Empty Frame
-                    byteArrayOutputStream.write(futureByte);
-                else
-                    System.out.println("Empty Frame");
+                @Override
+                public int size() {
+                    return header.getFrameCount();
+                }
+            };
+            try {
+                return ImageSequenceUtils.decodeIndexedImages(header, firstPayload, imageList, seed,
+                        maxDecodingThreads);
+            } catch (UnknownStegFormatException | UnsupportedMediaTypeException e) {
+                throw new IOException("Could not decode a frame listed in the sequence header", e);
             }
-            return byteArrayOutputStream.toByteArray();
-
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        } finally {
-            taskExecutor.shutdown();
         }
-
-        return byteArrayOutputStream.toByteArray();
     }
 
     @Override
@@ -314,23 +350,40 @@ public class VideoSteg implements Steganography {
         return isSteganographicData(data, ImageSteg.DEFAULT_SEED);
     }
 
+    /**
+     * Checks whether the Video holds payload by decoding only its first frame, the rest of the Video is not decoded.
+     * If the first frame holds a sequence header, the Video must have all frames listed in it.
+     */
     @Override
     public boolean isSteganographicData(byte[] data, long seed)
             throws IOException, MediaNotFoundException, UnsupportedMediaTypeException {
-        //List used to save the single frames decoded from the carrier
-        List<byte[]> imageList;
-
-        //Decode Video to Single Frames
         Video video = new Video(data, ffmpegBin);
-        VideoDecoder videoDecoder = new VideoDecoder(video, ffmpegBin, debug);
-        imageList = videoDecoder.decodeVideoToFrames(maxDecodingThreads);
 
-        boolean isSteganographicData = true;
-        for (byte[] image : imageList) {
-            if (!new ImageSteg().isSteganographicData(image, seed))
-                isSteganographicData = false;
+        //Decode the first frame only
+        BufferedImage[] firstFrame = new BufferedImage[1];
+        IDecoder videoDecoder = new VideoDecoder(video, ffmpegBin, debug);
+        videoDecoder.decodeVideoToImages(image -> {
+            firstFrame[0] = image;
+            return false;
+        });
+        if (firstFrame[0] == null)
+            return false;
+
+        ImageSteg imageSteg = new ImageSteg();
+        if (!imageSteg.isSteganographicData(firstFrame[0], seed))
+            return false;
+
+        SequenceHeader header;
+        try {
+            header = SequenceHeader.read(imageSteg.decode(firstFrame[0], seed));
+        } catch (UnknownStegFormatException e) {
+            //Signature found, but no valid payload
+            return false;
         }
-        return isSteganographicData;
+        if (header == null || video.getFrameCount() <= 0)
+            return true;
+        int[] dataFrames = header.getDataFrames();
+        return dataFrames.length == 0 || dataFrames[dataFrames.length - 1] < video.getFrameCount();
     }
 
     /**
@@ -359,12 +412,43 @@ public class VideoSteg implements Steganography {
         this.maxDecodingThreads = maxDecodingThreads;
     }
 
+    /**
+     * Set whether the frames should be encoded while the Video is decoded (see {@link PipelinedVideoEncoder}).
+     * Only a few frames are kept in memory instead of the whole Video, the threads set by
+     * {@link #setMaxEncodingThreads(int)} embed the payload into the frames.
+     * By default the whole Video is decoded first, which is also done if the container doesn't state the exact
+     * number of frames (see {@link Video#hasExactFrameCount()}).
+     *
+     * @param pipelined true to stream the frames from decoder to encoder
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Set whether only the frames carrying payload should be decoded and embedded
+     * (see {@link PipelinedVideoEncoder#setPassThrough(boolean)}). FFmpeg appends the remaining frames directly from
+     * the carrier, so for small payloads in long videos only a few frames are handled by the pipeline.
+     * Implies {@link #setPipelined(boolean)}. By default all frames are decoded, which is also done if the container
+     * doesn't state the exact number of frames.
+     *
+     * @param passThrough true to embed only into the frames needed for the payload
+     */
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
     public void setDebug(boolean debug) {
         this.debug = debug;
     }
 
     /**
      * Returns the maximum number of bytes that can be encoded in the given video.
+     * The capacity is computed from the size and number of frames found by FFprobe, without decoding the Video
+     * (see {@link #getVideoCapacity(byte[], boolean)}). The container can state more frames than there are, e.g. if
+     * the Video was cut without updating the header, so the lower of the number of frames and the number of packets
+     * of the video stream is used. The estimate can still be too high, if a packet doesn't decode to exactly one
+     * frame. To fill a Video up to its capacity, use the exact capacity.
      *
      * @param carrier carrier to be used (Video)
      * @return max amount of total number of bytes that can be encoded in the carrier
@@ -377,15 +461,46 @@ public class VideoSteg implements Steganography {
      */
     public long getVideoCapacity(byte[] carrier)
             throws IOException, NoImageException, UnsupportedImageTypeException, VideoNotFoundException, UnsupportedVideoTypeException {
-        VideoDecoder videoDecoder = new VideoDecoder(new Video(carrier, this.ffmpegBin), this.ffmpegBin, this.debug);
-        List<byte[]> pictureList = videoDecoder.decodeVideoToFrames(maxDecodingThreads);
-        ImageSteg imageSteg = new ImageSteg();
+        return getVideoCapacity(carrier, false);
+    }
 
-        long totalCapacity = 0;
-        for (byte[] picture : pictureList) {
-            totalCapacity += imageSteg.getImageCapacity(picture);
+    /**
+     * Returns the maximum number of bytes that can be encoded in the given video.
+     * The frames are decoded without alpha channel, so all frames have the same capacity, whatever the pixel
+     * format of the Video is. By default the capacity is computed from the metadata of the Video, that is the
+     * number of frames stated by the container and the number of packets of the video stream. Both are found by
+     * the same FFprobe run, which demuxes the whole Video once, but doesn't decode it (the result is cached, see
+     * {@link Video}). If exact is true, or if neither number is known, every frame is decoded and its capacity is
+     * counted. Only the exact capacity is guaranteed to fit.
+     *
+     * @param carrier carrier to be used (Video)
+     * @param exact   true to decode all frames instead of using the metadata of the Video
+     * @return max amount of total number of bytes that can be encoded in the carrier
+     * @throws IOException if IO Exception occurs
+     * @throws NoImageException Thrown if the attempt to read an image failed.
+     * @throws UnsupportedImageTypeException Thrown if an operation was attempted on an image type it doesn't support
+     * @throws VideoNotFoundException Thrown if a Video stream was not found in the given video carrier
+     * @throws UnsupportedVideoTypeException Thrown if the used encoding is not supported
+     */
+    public long getVideoCapacity(byte[] carrier, boolean exact)
+            throws IOException, NoImageException, UnsupportedImageTypeException, VideoNotFoundException, UnsupportedVideoTypeException {
+        Video video = new Video(carrier, this.ffmpegBin);
+        //The container may state more frames than the stream has
+        long frameCount = video.getFrameCount();
+        if (frameCount <= 0 || (video.getPacketCount() > 0 && video.getPacketCount() < frameCount))
+            frameCount = video.getPacketCount();
+        if (!exact && frameCount > 0 && frameCount <= Integer.MAX_VALUE) {
+            long capacity = frameCount * new ImageSteg().getImageCapacity(video.getFrameWidth(), video.getFrameHeight())
+                    - SequenceHeader.length((int) frameCount);
+            return Math.max(0, capacity);
         }
-        return totalCapacity;
+
+        VideoDecoder videoDecoder = new VideoDecoder(video, this.ffmpegBin, this.debug);
+        List<BufferedImage> imageList = videoDecoder.decodeVideoToImages();
+        //The sequence header in the first frame takes up some of the capacity
+        long capacity = ImageSequenceUtils.imageCapacityPlan(imageList).getTotalCapacity()
+                - SequenceHeader.length(imageList.size());
+        return Math.max(0, capacity);
     }
 
     /**
@@ -399,13 +514,10 @@ public class VideoSteg implements Steganography {
      */
     public long getVideoCapacity(List<byte[]> pictureList)
             throws IOException, NoImageException, UnsupportedImageTypeException {
-        ImageSteg imageSteg = new ImageSteg();
-
-        long totalCapacity = 0;
-        for (byte[] picture : pictureList) {
-            totalCapacity += imageSteg.getImageCapacity(picture);
-        }
-        return totalCapacity;
+        //The sequence header in the first frame takes up some of the capacity
+        long capacity = ImageSequenceUtils.capacityPlan(pictureList, maxDecodingThreads).getTotalCapacity()
+                - SequenceHeader.length(pictureList.size());
+        return Math.max(0, capacity);
     }
 
     /**
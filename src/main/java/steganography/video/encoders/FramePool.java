@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.video.encoders;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Recycles the images the frames of a Video are decoded into, so a new image is only created if all images
+ * are in use. The number of images is limited, once all of them are in use, acquiring an image waits until one
+ * is released.</p>
+ * <p>All images have the type TYPE_3BYTE_BGR, their pixel data has the same layout as a raw frame of FFmpeg's
+ * pixel format {@value #PIXEL_FORMAT}. So raw frames can be copied directly from and to the pixel data of an
+ * image (see {@link #getData(BufferedImage)}).</p>
+ */
+public class FramePool {
+    /**
+     * Pixel format of FFmpeg matching the pixel data of the images
+     */
+    public static final String PIXEL_FORMAT = "bgr24";
+
+    private final int width;
+    private final int height;
+    private final int maxImages;
+    private final BlockingQueue<BufferedImage> idleImages;
+    private final AtomicInteger createdImages = new AtomicInteger();
+
+    /**
+     * @param width     width of the frames
+     * @param height    height of the frames
+     * @param maxImages maximum number of images created by the pool
+     */
+    public FramePool(int width, int height, int maxImages) {
+        if (width < 1 || height < 1 || (long) width * height * 3 > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid frame size " + width + "x" + height);
+        if (maxImages < 1)
+            throw new IllegalArgumentException("At least one image must be available");
+
+        this.width = width;
+        this.height = height;
+        this.maxImages = maxImages;
+        this.idleImages = new ArrayBlockingQueue<>(maxImages);
+    }
+
+    /**
+     * Returns an idle image or creates a new one, if there is none. If all images are in use, waits until one is
+     * released. The content of the image is undefined.
+     *
+     * @return image of the size of the frames
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BufferedImage acquire() throws InterruptedException {
+        BufferedImage image = poll();
+        return image != null ? image : idleImages.take();
+    }
+
+    /**
+     * Like {@link #acquire()}, but waits at most the given time for an image to be released.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of timeout
+     * @return image of the size of the frames or null, if all images were in use until the time elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BufferedImage acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        BufferedImage image = poll();
+        return image != null ? image : idleImages.poll(timeout, unit);
+    }
+
+    /**
+     * @return an idle or a new image, null if all images are in use
+     */
+    private BufferedImage poll() {
+        BufferedImage image = idleImages.poll();
+        if (image != null)
+            return image;
+
+        int created;
+        while ((created = createdImages.get()) < maxImages) {
+            if (createdImages.compareAndSet(created, created + 1))
+                return new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        }
+        return null;
+    }
+
+    /**
+     * Returns an image to the pool. The image must not be used afterwards.
+     *
+     * @param image image acquired from this pool
+     * @throws IllegalArgumentException if the image could not have been acquired from this pool
+     * @throws IllegalStateException    if more images were released than acquired
+     */
+    public void release(BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != height ||
+                image.getType() != BufferedImage.TYPE_3BYTE_BGR)
+            throw new IllegalArgumentException("Image does not belong to this pool");
+
+        if (!idleImages.offer(image))
+            throw new IllegalStateException("Image released twice");
+    }
+
+    /**
+     * @return number of bytes of a raw frame in pixel format {@value #PIXEL_FORMAT}
+     */
+    public int getFrameSize() {
+        return width * height * 3;
+    }
+
+    /**
+     * @return number of images created by this pool so far
+     */
+    public int getCreatedImages() {
+        return createdImages.get();
+    }
+
+    /**
+     * Returns the pixel data of an image of this pool, changes to it are changes to the image
+     *
+     * @param image image acquired from a FramePool
+     * @return pixel data in pixel format {@value #PIXEL_FORMAT}
+     */
+    public static byte[] getData(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
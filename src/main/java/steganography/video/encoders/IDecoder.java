@@ -18,8 +18,10 @@
 
 package steganography.video.encoders;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface IDecoder {
 
@@ -31,4 +33,20 @@ public interface IDecoder {
      * @throws IOException if a read or write fails
      */
     List<byte[]> decodeVideoToFrames(int nThread) throws IOException;
+
+    /**
+     * Decode a Video to single Pictures without encoding them
+     *
+     * @return List of pictures decoded from Video
+     * @throws IOException if a read or write fails
+     */
+    List<BufferedImage> decodeVideoToImages() throws IOException;
+
+    /**
+     * Decode a Video to single Pictures without encoding them, until no further Pictures are needed
+     *
+     * @param imageConsumer gets the Pictures in order, returns false if no further Pictures are needed
+     * @return number of Pictures decoded
+     */
+    int decodeVideoToImages(Predicate<BufferedImage> imageConsumer);
 }
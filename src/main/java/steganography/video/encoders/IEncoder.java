@@ -18,6 +18,7 @@
 
 package steganography.video.encoders;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
 
@@ -31,4 +32,13 @@ public interface IEncoder {
      * @throws IOException if a read or write fails
      */
     byte[] encodeFrames(List<byte[]> stegImages) throws IOException;
+
+    /**
+     * Encodes a List of images to a Video without decoding them first
+     *
+     * @param stegImages List of Stenographic images
+     * @return Encoded Video byte[]
+     * @throws IOException if a read or write fails
+     */
+    byte[] encodeImages(List<BufferedImage> stegImages) throws IOException;
 }
@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.video.encoders;
+
+import com.github.kokorin.jaffree.StreamType;
+import com.github.kokorin.jaffree.ffmpeg.*;
+import steganography.image.ImageSteg;
+import steganography.image.exceptions.ImageCapacityException;
+import steganography.image.exceptions.UnsupportedImageTypeException;
+import steganography.util.ByteArrayChannel;
+import steganography.util.SequenceHeader;
+import steganography.video.Video;
+import steganography.video.exceptions.VideoCapacityException;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ * <p>Encodes a payload into a Video without holding all of its frames in memory.</p>
+ * <p>The frames flow from the decoding FFmpeg process through a bounded queue to the encoding FFmpeg process.
+ * Both processes run at the same time, the frames are embedded in place by a pool of worker threads in between
+ * (see {@link ImageSteg#encode(BufferedImage, byte[], long)}), so no frame is ever encoded as an image file.
+ * If the queue is full, the decoder blocks until the encoder has taken a frame, so only a few frames are in
+ * memory at any time.</p>
+ * <p>The frames are exchanged with FFmpeg as raw video of pixel format {@value FramePool#PIXEL_FORMAT}, which is
+ * copied directly into and out of the images of a {@link FramePool}. Once the encoder has taken a frame, its image
+ * is reused for one of the next decoded frames. The pool only holds as many images as can be in the pipeline,
+ * so no images are created while the frames are passed through.</p>
+ * <p>With {@link #setPassThrough(boolean)}, only the frames carrying payload are decoded into the pipeline. FFmpeg
+ * appends all other frames to the encoded Video directly from the carrier.</p>
+ * <p>The number of frames has to be known before the first frame is decoded, so the Video must have an exact
+ * number of frames (see {@link Video#hasExactFrameCount()}). Other Videos have to be decoded completely to count
+ * their frames, as {@link steganography.video.VideoSteg} does.</p>
+ * <p>The payload is distributed like {@link steganography.util.ImageSequenceUtils#indexedDistribution(
+ * steganography.util.CapacityPlan, byte[])} does: it fills up the frames one after another, and the first frame
+ * holds a {@link SequenceHeader} listing the frames carrying payload. All frames are decoded without alpha
+ * channel, so they have the same capacity and the frames carrying payload are known before the first frame is
+ * decoded. Every frame is embedded as soon as it has been decoded, all following frames are passed through as
+ * they are. The result can be decoded by {@link steganography.video.VideoSteg#decode(byte[], long)}.</p>
+ */
+public class PipelinedVideoEncoder {
+    /**
+     * Number of frames per worker thread that may be queued between decoder and encoder
+     */
+    private static final int QUEUED_FRAMES_PER_THREAD = 2;
+
+    private final File ffmpegBin;
+    private final boolean logging;
+    private final Video video;
+    private boolean passThrough = false;
+
+    /**
+     * @param video     Video to be used as carrier
+     * @param ffmpegBin path to bin of ffmpeg
+     * @param logging   if logging should be enabled
+     */
+    public PipelinedVideoEncoder(Video video, File ffmpegBin, boolean logging) {
+        this.video = video;
+        this.ffmpegBin = ffmpegBin;
+        this.logging = logging;
+    }
+
+    /**
+     * Set whether only the frames carrying payload should pass through the pipeline. The decoder stops after these
+     * frames and the encoder takes the remaining frames from the carrier, so the time spent in the pipeline depends
+     * on the size of the payload instead of the length of the Video. By default all frames pass through the pipeline.
+     *
+     * @param passThrough true to let FFmpeg append the frames without payload itself
+     */
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
+    /**
+     * Encodes the payload into the frames of the Video and returns the resulting Video.
+     *
+     * @param payload  payload to encode
+     * @param seed     seed to encode the frames with
+     * @param nThreads number of threads used to embed the payload into the frames
+     * @return Encoded Video as .avi
+     * @throws IOException                   if a read or write fails
+     * @throws VideoCapacityException        if the payload doesn't fit in the Video or the Video has no exact
+     *                                       number of frames
+     * @throws UnsupportedImageTypeException if a frame has an unsupported type
+     * @throws ImageCapacityException        if a frame could not hold its part of the payload
+     */
+    public byte[] encode(byte[] payload, long seed, int nThreads)
+            throws IOException, VideoCapacityException, UnsupportedImageTypeException, ImageCapacityException {
+        if (video.getFrameCount() < 1 || video.getFrameCount() > Integer.MAX_VALUE)
+            throw new VideoCapacityException("Video has an invalid number of frames: " + video.getFrameCount());
+        //Otherwise the sequence header would list a different number of frames than the encoded Video has
+        if (!video.hasExactFrameCount())
+            throw new VideoCapacityException("Video states " + video.getFrameCount() + " frames, but has " +
+                    video.getPacketCount() + " packets or a variable frame rate");
+
+        int frameCapacity = new ImageSteg().getImageCapacity(video.getFrameWidth(), video.getFrameHeight());
+        int payloadFrames = getPayloadFrameCount(payload.length, frameCapacity);
+        int pipelinedFrames = passThrough ? payloadFrames : (int) video.getFrameCount();
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, nThreads));
+        ExecutorService decoding = Executors.newSingleThreadExecutor();
+        int queueSize = Math.max(1, nThreads) * QUEUED_FRAMES_PER_THREAD;
+        //Frames are in the queue (being embedded or done), written by the decoder or read by the encoder
+        FramePool framePool = new FramePool(video.getFrameWidth(), video.getFrameHeight(), queueSize + 2);
+        Pipeline pipeline = new Pipeline(payload, seed, frameCapacity, payloadFrames, pipelinedFrames, workers,
+                queueSize);
+        FrameSink frameSink = new FrameSink(pipeline, framePool);
+
+        //Decode the frames of the carrier while they are encoded
+        FFmpeg decoder = FFmpeg.atPath(ffmpegBin.toPath())
+                .addInput(PipeInput.pumpFrom(new ByteArrayInputStream(video.getVideoByteArray())))
+                .addOutput(PipeOutput
+                        .pumpTo(frameSink)
+                        .setFormat("rawvideo")
+                        .addArguments("-pix_fmt", FramePool.PIXEL_FORMAT)
+                        .setFrameCount(StreamType.VIDEO, (long) pipelinedFrames)
+                        .setFrameRate(video.getFrameRate())
+                        .disableStream(StreamType.SUBTITLE)
+                        .disableStream(StreamType.DATA)
+                        .disableStream(StreamType.AUDIO)
+                )
+                .setOverwriteOutput(true);
+        Future<?> decoderResult = decoding.submit(() -> {
+            try {
+                decoder.execute();
+                if (frameSink.hasIncompleteFrame())
+                    pipeline.fail(new IOException("Decoding the video ended in the middle of a frame"));
+            } catch (RuntimeException e) {
+                //FFmpeg may stop reading the carrier once it has decoded all frames needed
+                boolean complete = frameSink.getFrameCount() == pipelinedFrames && !frameSink.hasIncompleteFrame();
+                if (!pipeline.isAborted() && !complete)
+                    pipeline.fail(new IOException("Decoding the video failed", e));
+            } finally {
+                pipeline.endOfStream();
+            }
+        });
+
+        //The Video is muxed in memory
+        ByteArrayChannel output = new ByteArrayChannel(video.getVideoByteArray().length);
+        try {
+            FFmpeg encoder = FFmpeg.atPath(ffmpegBin.toPath())
+                    .addInput(PipeInput.pumpFrom(new FrameSource(pipeline, framePool))
+                            .setFormat("rawvideo")
+                            .addArguments("-pix_fmt", FramePool.PIXEL_FORMAT)
+                            .addArguments("-s", video.getFrameWidth() + "x" + video.getFrameHeight())
+                            .setFrameRate(video.getFrameRate()));
+            //The audio stream and the frames not passed through the pipeline are taken from the carrier itself
+            if (pipelinedFrames < video.getFrameCount() || video.hasAudioStream())
+                encoder.addInput(PipeInput.pumpFrom(new ByteArrayInputStream(video.getVideoByteArray())));
+            if (pipelinedFrames < video.getFrameCount()) {
+                encoder.addArguments("-filter_complex", getPassThroughFilter(pipelinedFrames))
+                        .addArguments("-map", "[v]");
+            } else if (video.hasAudioStream()) {
+                encoder.addArguments("-map", "0:v");
+            }
+            if (video.hasAudioStream())
+                encoder.addArguments("-map", "1:a");
+            encoder.setOverwriteOutput(true)
+                    .addOutput(ChannelOutput.toChannel("VideoSteganography.avi", output))
+                    .addArguments("-c:v", "png")
+                    .execute();
+
+            decoderResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding the video");
+        } catch (ExecutionException e) {
+            throw new IOException("Decoding the video failed", e.getCause());
+        } catch (RuntimeException e) {
+            //A failure of the pipeline makes the encoder fail as well, so that one is reported instead
+            pipeline.fail(e);
+        } finally {
+            //Unblocks the decoder, if the encoder did not take all frames
+            pipeline.abort();
+            workers.shutdownNow();
+            decoding.shutdown();
+            output.close();
+        }
+
+        pipeline.rethrowFailure();
+        pipeline.checkFrameCount();
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns the number of frames needed to hold the payload and the sequence header. All frames are decoded
+     * without alpha channel, so they all have the same capacity.
+     *
+     * @param payloadLength length of the payload
+     * @param frameCapacity number of bytes a frame can hold
+     * @return number of the first frames carrying payload
+     * @throws VideoCapacityException if the payload doesn't fit in the Video
+     */
+    private int getPayloadFrameCount(int payloadLength, int frameCapacity) throws VideoCapacityException {
+        int headerLength = SequenceHeader.length((int) video.getFrameCount());
+        if (frameCapacity < headerLength)
+            throw new VideoCapacityException("First frame can't hold the sequence header of " + headerLength +
+                    " bytes");
+        long frames = 1 + ((long) Math.max(0, payloadLength - (frameCapacity - headerLength)) + frameCapacity - 1) /
+                frameCapacity;
+        if (frames > video.getFrameCount())
+            throw new VideoCapacityException("Payload is too big for carrier. " + payloadLength + " Bytes need " +
+                    frames + " frames, but the Video has only " + video.getFrameCount());
+        return (int) frames;
+    }
+
+    /**
+     * Returns the filter graph appending the frames of the carrier (second input), that did not pass through the
+     * pipeline, to the frames of the pipeline (first input). The carrier is resampled to the frame rate of the
+     * decoder, so the frames are counted the same way.
+     *
+     * @param pipelinedFrames number of frames passed through the pipeline
+     * @return filter graph with the output [v]
+     */
+    private String getPassThroughFilter(int pipelinedFrames) {
+        return "[0:v]setsar=1[pipeline];" +
+                "[1:v]fps=" + video.getFrameRate() + ",trim=start_frame=" + pipelinedFrames +
+                ",setpts=PTS-STARTPTS,setsar=1[carrier];" +
+                "[pipeline][carrier]concat=n=2:v=1:a=0[v]";
+    }
+
+    /**
+     * Receives the raw frames of the decoder and passes them to the pipeline as images of the pool
+     */
+    private static class FrameSink extends OutputStream {
+        private final Pipeline pipeline;
+        private final FramePool framePool;
+        private BufferedImage image = null;
+        private byte[] data;
+        private int position;
+        private int frameCount = 0;
+
+        FrameSink(Pipeline pipeline, FramePool framePool) {
+            this.pipeline = pipeline;
+            this.framePool = framePool;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (image == null) {
+                    image = acquire();
+                    data = FramePool.getData(image);
+                    position = 0;
+                }
+                int length = Math.min(len, data.length - position);
+                System.arraycopy(b, off, data, position, length);
+                position += length;
+                off += length;
+                len -= length;
+
+                if (position == data.length) {
+                    BufferedImage frame = image;
+                    image = null;
+                    frameCount++;
+                    pipeline.consume(frame);
+                }
+            }
+        }
+
+        /**
+         * Waits until the pool has an image for the next frame or the pipeline was aborted
+         *
+         * @throws IOException if the pipeline was aborted
+         */
+        private BufferedImage acquire() throws IOException {
+            try {
+                BufferedImage image;
+                while ((image = framePool.acquire(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (pipeline.isAborted())
+                        throw new IOException("Encoding the video was aborted");
+                }
+                return image;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for an image");
+            }
+        }
+
+        /**
+         * @return true if the last frame was not written completely
+         */
+        boolean hasIncompleteFrame() {
+            return image != null;
+        }
+
+        /**
+         * @return number of frames written completely
+         */
+        int getFrameCount() {
+            return frameCount;
+        }
+    }
+
+    /**
+     * Provides the raw frames of the pipeline to the encoder and returns their images to the pool
+     */
+    private static class FrameSource extends InputStream {
+        private final Pipeline pipeline;
+        private final FramePool framePool;
+        private BufferedImage image = null;
+        private byte[] data;
+        private int position;
+        private boolean endOfStream = false;
+
+        FrameSource(Pipeline pipeline, FramePool framePool) {
+            this.pipeline = pipeline;
+            this.framePool = framePool;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (image == null || position == data.length) {
+                //The encoder has taken the whole frame
+                if (image != null) {
+                    framePool.release(image);
+                    image = null;
+                }
+                if (endOfStream)
+                    return -1;
+                image = pipeline.produce();
+                if (image == null) {
+                    if (pipeline.isAborted())
+                        throw new IOException("Encoding the video was aborted");
+                    endOfStream = true;
+                    return -1;
+                }
+                data = FramePool.getData(image);
+                position = 0;
+            }
+            int length = Math.min(len, data.length - position);
+            System.arraycopy(data, position, b, off, length);
+            position += length;
+            return length;
+        }
+    }
+
+    /**
+     * Connects the decoder with the encoder
+     */
+    private class Pipeline {
+        private final byte[] payload;
+        private final long seed;
+        private final int frameCapacity;
+        private final int payloadFrames;
+        private final int pipelinedFrames;
+        private final byte[] header;
+        private final ExecutorService workers;
+
+        /**
+         * Frames in the order of decoding, a null result marks the end of the stream
+         */
+        private final BlockingQueue<Future<BufferedImage>> decodedFrames;
+
+        /**
+         * Number of frames passed to the encoder (only used by the decoder)
+         */
+        private int consumedFrames = 0;
+        private int producedFrames = 0;
+
+        private volatile boolean aborted = false;
+        private boolean endOfStream = false;
+        private volatile Throwable failure = null;
+
+        /**
+         * @param frameCapacity   number of bytes a frame can hold
+         * @param payloadFrames   number of the first frames carrying payload
+         * @param pipelinedFrames number of frames passing through the pipeline
+         */
+        Pipeline(byte[] payload, long seed, int frameCapacity, int payloadFrames, int pipelinedFrames,
+                 ExecutorService workers, int queueSize) {
+            this.payload = payload;
+            this.seed = seed;
+            this.frameCapacity = frameCapacity;
+            this.payloadFrames = payloadFrames;
+            this.pipelinedFrames = pipelinedFrames;
+            this.workers = workers;
+            this.decodedFrames = new ArrayBlockingQueue<>(queueSize);
+
+            int[] frames = new int[payloadFrames];
+            for (int i = 0; i < payloadFrames; i++) {
+                frames[i] = i;
+            }
+            this.header = new SequenceHeader(SequenceHeader.LAYOUT_SEQUENTIAL, payload.length, 0,
+                    (int) video.getFrameCount(), frames).toBytes();
+        }
+
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        //                                        Decoder
+        ///////////////////////////////////////////////////////////////////////////////////////////
+
+        /**
+         * Passes a decoded frame to the encoder, blocks while the encoder is behind
+         *
+         * @throws IOException if the pipeline was aborted
+         */
+        void consume(BufferedImage image) throws IOException {
+            int frameIndex = consumedFrames++;
+            Future<BufferedImage> frame = frameIndex < payloadFrames ?
+                    workers.submit(() -> embed(image, frameIndex)) :
+                    CompletableFuture.completedFuture(image);
+            if (aborted || !enqueue(frame))
+                throw new IOException("Encoding the video was aborted");
+        }
+
+        /**
+         * Marks the end of the stream, if not done yet
+         */
+        synchronized void endOfStream() {
+            if (!endOfStream) {
+                endOfStream = true;
+                enqueue(CompletableFuture.completedFuture(null));
+            }
+        }
+
+        /**
+         * Waits until the frame fits in the queue or the pipeline was aborted
+         *
+         * @return false if the pipeline was aborted
+         */
+        private boolean enqueue(Future<BufferedImage> decodedFrame) {
+            try {
+                while (!decodedFrames.offer(decodedFrame, 100, TimeUnit.MILLISECONDS)) {
+                    if (aborted)
+                        return false;
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new InterruptedIOException("Interrupted while queueing a frame"));
+                return false;
+            }
+        }
+
+        /**
+         * Embeds the part of the payload of a frame, the first frame holds the sequence header in front of it
+         */
+        private BufferedImage embed(BufferedImage image, int frameIndex)
+                throws UnsupportedImageTypeException, ImageCapacityException {
+            byte[] chunk;
+            int firstLength = Math.min(payload.length, frameCapacity - header.length);
+            if (frameIndex == 0) {
+                chunk = Arrays.copyOf(header, header.length + firstLength);
+                System.arraycopy(payload, 0, chunk, header.length, firstLength);
+            } else {
+                int start = (int) Math.min(payload.length, firstLength + (long) (frameIndex - 1) * frameCapacity);
+                chunk = Arrays.copyOfRange(payload, start, Math.min(payload.length, start + frameCapacity));
+            }
+            //ImageSteg is not threads safe yet, so need to make an instance for each task
+            new ImageSteg().encode(image, chunk, seed);
+            return image;
+        }
+
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        //                                        Encoder
+        ///////////////////////////////////////////////////////////////////////////////////////////
+
+        /**
+         * Returns the next frame to encode, blocks until it is ready
+         *
+         * @return the next frame or null, if the stream has ended or the pipeline was aborted
+         */
+        BufferedImage produce() {
+            try {
+                if (aborted)
+                    return null;
+                BufferedImage frame = decodedFrames.take().get();
+                if (frame == null)
+                    return null;
+                producedFrames++;
+                if (logging)
+                    System.out.println("(Pipeline -> Video): (" + producedFrames + "/" + pipelinedFrames + ")");
+                return frame;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new InterruptedIOException("Interrupted while encoding a frame"));
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            }
+            return null;
+        }
+
+        ///////////////////////////////////////////////////////////////////////////////////////////
+        //                                       Failures
+        ///////////////////////////////////////////////////////////////////////////////////////////
+
+        void fail(Throwable throwable) {
+            if (failure == null)
+                failure = throwable;
+            aborted = true;
+        }
+
+        void abort() {
+            aborted = true;
+        }
+
+        boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * The sequence header lists the number of frames, so all frames expected must have passed the pipeline
+         *
+         * @throws IOException if a different number of frames passed the pipeline
+         */
+        void checkFrameCount() throws IOException {
+            if (producedFrames != pipelinedFrames)
+                throw new IOException("Video should have " + pipelinedFrames + " frames from the pipeline, but " +
+                        producedFrames + " were encoded");
+        }
+
+        void rethrowFailure()
+                throws IOException, VideoCapacityException, UnsupportedImageTypeException, ImageCapacityException {
+            Throwable cause = failure;
+            if (cause == null)
+                return;
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof VideoCapacityException)
+                throw (VideoCapacityException) cause;
+            if (cause instanceof UnsupportedImageTypeException)
+                throw (UnsupportedImageTypeException) cause;
+            if (cause instanceof ImageCapacityException)
+                throw (ImageCapacityException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -23,18 +23,18 @@ import com.github.kokorin.jaffree.ffmpeg.*;
 import steganography.video.Video;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * @author : Enrico Gamil Toros de Chadarevian
@@ -43,6 +43,11 @@ import java.util.concurrent.*;
  * @since : 23-11-2020
  **/
 public class VideoDecoder implements IDecoder {
+    /**
+     * Number of frames per thread that may wait to be encoded as PNG
+     */
+    private static final int QUEUED_FRAMES_PER_THREAD = 2;
+
     private final File ffmpegBin;
     private final byte[] videoByteArray;
     private final List<Long> ptsList = new ArrayList<>();
@@ -62,121 +67,166 @@ public class VideoDecoder implements IDecoder {
     }
 
     /**
-     * Decode a Video into a list of single Pictures that can be encoded
+     * Decode a Video into a list of single Pictures that can be encoded.
+     * The frames are encoded as PNG while the Video is decoded. If all threads are busy and the queue is full,
+     * FFmpeg's consumer encodes the frame itself, so decoding can't get far ahead of encoding.
      *
      * @param nThread number of threads to be used to decode
      * @return List of pictures from single frames of Video
      * @throws IOException if a read or write fails
      */
     public List<byte[]> decodeVideoToFrames(int nThread) throws IOException {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(videoByteArray);
-
-        //Temp file to save muxed audio channel
-        File soundFile = File.createTempFile("VideoSteganography-", ".mp3");
-        soundFile.deleteOnExit();
-        SeekableByteChannel sbc = Files.newByteChannel(soundFile.toPath(), StandardOpenOption.WRITE);
-
-        //Executor service that will run FrameConsume consume()
-        ExecutorService taskExecutor = Executors.newFixedThreadPool(nThread);
-        //List of callable objects that will return a map of byte[] of the list
-        List<Callable<Map<byte[], Long>>> taskList = new ArrayList<>();
-
-        // for each frame FrameConsumer calls consume(), we create a callable Object each time
+        //Executor service that encodes the frames as PNG, a few frames may wait for a free thread
+        int threads = Math.max(1, nThread);
+        ExecutorService taskExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_FRAMES_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        //Results in the order of the frames
+        List<Future<byte[]>> futureList = new ArrayList<>();
+        AtomicInteger encodedFrames = new AtomicInteger();
+
+        // for each frame FrameConsumer calls consume(), the frame is encoded as soon as a thread is free
         FrameConsumer frameConsumer = new FrameConsumer() {
-            int frameNumber = 1;
-
             @Override
             public void consumeStreams(List<Stream> streams) {
             }
 
             @Override
             public void consume(Frame frame) {
-                taskList.add(() -> {
-                            Map<byte[], Long> map = null;
-                            // End of Stream
-                            if (frame == null) {
-                                return null;
-                            }
-                            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                            try {
-                                ImageIO.write(frame.getImage(), "png", byteArrayOutputStream);
-                                map = Collections.singletonMap(byteArrayOutputStream.toByteArray(), frame.getPts());
-                                if (logging && frameNumber % 2 == 0) {
-                                    System.out.println("(Video -> Picture): (" + frameNumber + "/" + video.getFrameCount() + ")");
-                                }
-                                frameNumber++;
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                            return map;
-                        }
-                );
+                // End of Stream
+                if (frame == null)
+                    return;
+                ptsList.add(frame.getPts());
+                futureList.add(taskExecutor.submit(() -> {
+                    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                    ImageIO.write(frame.getImage(), "png", byteArrayOutputStream);
+                    int frameNumber = encodedFrames.incrementAndGet();
+                    if (logging && frameNumber % 2 == 0) {
+                        System.out.println("(Video -> Picture): (" + frameNumber + "/" + video.getFrameCount() + ")");
+                    }
+                    return byteArrayOutputStream.toByteArray();
+                }));
             }
 
         };
 
-
-        // Video with Audio Stream
-        if (video.hasAudioStream()) {
-            FFmpeg.atPath(ffmpegBin.toPath())
-                    .addInput(PipeInput.pumpFrom(inputStream))
-                    //Create Audio File
-                    .addOutput(ChannelOutput
-                            .toChannel(soundFile.getName(), sbc)
-                            .disableStream(StreamType.VIDEO)
-                            .disableStream(StreamType.DATA)
-                            .disableStream(StreamType.SUBTITLE)
-                    )
-                    .addOutput(FrameOutput
-                            .withConsumer(frameConsumer)
-                            .setFrameCount(StreamType.VIDEO, video.getFrameCount())
-                            .setFrameRate(video.getFrameRate())
-                            .disableStream(StreamType.SUBTITLE)
-                            .disableStream(StreamType.DATA)
-                            .disableStream(StreamType.AUDIO)
-                    )
-                    .setOverwriteOutput(true)
-                    .execute();
-        } else {
-            //Video with no Audio Stream
-            FFmpeg.atPath(ffmpegBin.toPath())
-                    .addInput(PipeInput.pumpFrom(inputStream))
-                    .addOutput(FrameOutput
-                            .withConsumer(frameConsumer)
-                            .setFrameCount(StreamType.VIDEO, video.getFrameCount())
-                            .setFrameRate(video.getFrameRate())
-                            .disableStream(StreamType.SUBTITLE)
-                            .disableStream(StreamType.DATA)
-                            .disableStream(StreamType.AUDIO)
-                    )
-                    .setOverwriteOutput(true)
-                    .execute();
-        }
-
-        //Execute all tasks
+        //Wait for all results
         List<byte[]> decodedImages = new ArrayList<>();
-        List<Future<Map<byte[], Long>>> futureList;
         try {
-            futureList = taskExecutor.invokeAll(taskList);
-            //Wait for all results
-            for (Future<Map<byte[], Long>> result : futureList) {
-                if (result.get() != null) {
-                    result.get().forEach(
-                            (k, v) -> {
-                                decodedImages.add(k);
-                                ptsList.add(v);
-                            }
-                    );
-                }
+            decode(frameConsumer);
+            for (Future<byte[]> result : futureList) {
+                decodedImages.add(result.get());
             }
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding frames");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Encoding a frame failed", e.getCause());
         } finally {
             taskExecutor.shutdown();
         }
-        video.setAudioFile(soundFile);
         video.setPtsList(this.ptsList);
 
         return decodedImages;
     }
+
+    /**
+     * Decode a Video into a list of single Pictures without encoding them as PNG.
+     * The pictures can be encoded directly using {@link steganography.image.ImageSteg#encode(BufferedImage, byte[], long)}.
+     *
+     * @return List of pictures from single frames of Video
+     * @throws IOException if a read or write fails
+     */
+    public List<BufferedImage> decodeVideoToImages() throws IOException {
+        List<BufferedImage> decodedImages = new ArrayList<>();
+        FrameConsumer frameConsumer = new FrameConsumer() {
+            @Override
+            public void consumeStreams(List<Stream> streams) {
+            }
+
+            @Override
+            public void consume(Frame frame) {
+                // End of Stream
+                if (frame == null)
+                    return;
+                decodedImages.add(frame.getImage());
+                ptsList.add(frame.getPts());
+                if (logging && decodedImages.size() % 2 == 0) {
+                    System.out.println("(Video -> Picture): (" + decodedImages.size() + "/" + video.getFrameCount() + ")");
+                }
+            }
+        };
+
+        decode(frameConsumer);
+
+        video.setPtsList(this.ptsList);
+
+        return decodedImages;
+    }
+
+    /**
+     * Decode a Video into single Pictures without encoding them as PNG and pass them to the given consumer one after
+     * another. Once the consumer needs no further Pictures, FFmpeg is stopped, so the rest of the Video is not
+     * decoded.
+     *
+     * @param imageConsumer gets the Pictures in the order of the Video, returns false if no further Pictures are needed
+     * @return number of Pictures passed to the consumer
+     */
+    public int decodeVideoToImages(Predicate<BufferedImage> imageConsumer) {
+        AtomicInteger decodedImages = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        FrameConsumer frameConsumer = new FrameConsumer() {
+            @Override
+            public void consumeStreams(List<Stream> streams) {
+            }
+
+            @Override
+            public void consume(Frame frame) {
+                // End of Stream
+                if (frame == null || stopped.get())
+                    return;
+                decodedImages.incrementAndGet();
+                if (!imageConsumer.test(frame.getImage())) {
+                    stopped.set(true);
+                    //Makes Jaffree stop FFmpeg
+                    throw new CancellationException("No further frames needed");
+                }
+            }
+        };
+
+        try {
+            decode(frameConsumer);
+        } catch (RuntimeException e) {
+            if (!stopped.get())
+                throw e;
+        }
+        if (logging)
+            System.out.println("(Video -> Picture): " + decodedImages.get() + "/" + video.getFrameCount() + " decoded");
+        return decodedImages.get();
+    }
+
+    /**
+     * Runs FFmpeg to decode the frames of the Video to the given consumer.
+     * The audio stream (if any) is not decoded, it is taken from the carrier again when encoding.
+     *
+     * @param frameConsumer consumer of the frames
+     */
+    private void decode(FrameConsumer frameConsumer) {
+        FrameOutput output = FrameOutput
+                .withConsumer(frameConsumer)
+                .setFrameRate(video.getFrameRate())
+                .disableStream(StreamType.SUBTITLE)
+                .disableStream(StreamType.DATA)
+                .disableStream(StreamType.AUDIO);
+        //Without the number of frames, all frames are decoded
+        if (video.getFrameCount() > 0)
+            output.setFrameCount(StreamType.VIDEO, video.getFrameCount());
+
+        FFmpeg.atPath(ffmpegBin.toPath())
+                .addInput(PipeInput.pumpFrom(new ByteArrayInputStream(videoByteArray)))
+                .addOutput(output)
+                .setOverwriteOutput(true)
+                .execute();
+    }
 }
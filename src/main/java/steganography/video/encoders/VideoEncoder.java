@@ -19,17 +19,14 @@
 package steganography.video.encoders;
 
 import com.github.kokorin.jaffree.ffmpeg.*;
-import steganography.util.ByteArrayUtils;
+import steganography.util.ByteArrayChannel;
 import steganography.video.Video;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.List;
 
@@ -58,10 +55,6 @@ public class VideoEncoder implements IEncoder {
      * @throws IOException If a read or write fails
      */
     public byte[] encodeFrames(List<byte[]> stegImages) throws IOException {
-        File tempFile = File.createTempFile("VideoSteganography-", ".avi");
-        tempFile.deleteOnExit();
-        SeekableByteChannel sbc = Files.newByteChannel(tempFile.toPath(), StandardOpenOption.WRITE);
-
         FrameProducer frameProducer = new FrameProducer() {
             int frameCounter = 0;
 
@@ -96,28 +89,73 @@ public class VideoEncoder implements IEncoder {
             }
         };
 
-        //Create Video with Audio if available
-        if (video.hasAudioStream()) {
-            FFmpeg.atPath(ffmpegBin.toPath())
-                    .addInput(FrameInput.withProducer(frameProducer)
-                            .setFrameRate(video.getFrameRate()))
-                    //Audio Stream
-                    .addInput(PipeInput.pumpFrom(new FileInputStream(video.getAudioFile())))
-                    .setOverwriteOutput(true)
-                    .addOutput(ChannelOutput.toChannel(tempFile.getName(), sbc))
-                    .addArguments("-c:v", "png")
-                    .execute();
-        } else {
-            //Create Video with no Audio
-            FFmpeg.atPath(ffmpegBin.toPath())
+        return encode(frameProducer);
+    }
+
+    /**
+     * Encode a list of images to a video without decoding them first
+     *
+     * @param stegImages List of images to be encoded
+     * @return Encoded Video as .avi
+     * @throws IOException If a read or write fails
+     */
+    public byte[] encodeImages(List<BufferedImage> stegImages) throws IOException {
+        FrameProducer frameProducer = new FrameProducer() {
+            int frameCounter = 0;
+
+            @Override
+            public List<Stream> produceStreams() {
+                return Collections.singletonList(new Stream()
+                        .setType(Stream.Type.VIDEO)
+                        .setTimebase(video.getTimebase())
+                        .setResolution(video.getFrameWidth(), video.getFrameHeight())
+                );
+            }
+
+            @Override
+            public Frame produce() {
+                if (frameCounter + 1 > stegImages.size()) {
+                    //All frames consumed
+                    return null;
+                }
+                if (logging)
+                    System.out.println("(Pictures -> Video): (" + frameCounter + "/" + stegImages.size() + ")");
+
+                Frame videoFrame = new Frame(0, video.getPtsList().get(frameCounter), stegImages.get(frameCounter));
+                frameCounter++;
+
+                return videoFrame;
+            }
+        };
+
+        return encode(frameProducer);
+    }
+
+    /**
+     * Runs FFmpeg to encode the frames of the given producer and the audio stream of the Video (if any) to a video.
+     * The audio stream is taken from the carrier itself, the Video is muxed in memory.
+     *
+     * @param frameProducer producer of the frames
+     * @return Encoded Video as .avi
+     * @throws IOException If a read or write fails
+     */
+    private byte[] encode(FrameProducer frameProducer) throws IOException {
+        try (ByteArrayChannel channel = new ByteArrayChannel(video.getVideoByteArray().length)) {
+            FFmpeg ffmpeg = FFmpeg.atPath(ffmpegBin.toPath())
                     .addInput(FrameInput.withProducer(frameProducer)
-                            .setFrameRate(video.getFrameRate()))
-                    .setOverwriteOutput(true)
-                    .addOutput(ChannelOutput.toChannel(tempFile.getName(), sbc))
+                            .setFrameRate(video.getFrameRate()));
+            //Create Video with Audio if available
+            if (video.hasAudioStream()) {
+                ffmpeg.addInput(PipeInput.pumpFrom(new ByteArrayInputStream(video.getVideoByteArray())))
+                        .addArguments("-map", "0:v")
+                        .addArguments("-map", "1:a");
+            }
+            ffmpeg.setOverwriteOutput(true)
+                    .addOutput(ChannelOutput.toChannel("VideoSteganography.avi", channel))
                     .addArguments("-c:v", "png")
                     .execute();
-        }
 
-        return ByteArrayUtils.read(tempFile);
+            return channel.toByteArray();
+        }
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public class FrameHeaderTest {
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                                      read()
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void readTest_fourBytes_expectBigEndianInt() {
+        byte[] bytes = new byte[] {0, (byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x64};
+
+        Assertions.assertEquals(0xFFFB9064, FrameHeader.read(ByteBuffer.wrap(bytes), 1));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                                 getFrameLength()
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void getFrameLengthTest_mpeg1Layer3_128kbps_44100Hz() {
+        Assertions.assertEquals(417, FrameHeader.getFrameLength(0xFFFB9064));
+        // padded
+        Assertions.assertEquals(418, FrameHeader.getFrameLength(0xFFFB9264));
+    }
+
+    @Test
+    public void getFrameLengthTest_mpeg2Layer3_64kbps_22050Hz() {
+        // 72 * 64000 / 22050 = 208
+        Assertions.assertEquals(208, FrameHeader.getFrameLength(0xFFF38064));
+    }
+
+    @Test
+    public void getFrameLengthTest_mpeg1Layer1_32kbps_32000Hz_padded() {
+        // (12 * 32000 / 32000 + 1) * 4 = 52
+        Assertions.assertEquals(52, FrameHeader.getFrameLength(0xFFFF1A64));
+    }
+
+    @Test
+    public void getFrameLengthTest_mpeg1Layer2_192kbps_48000Hz() {
+        // 144 * 192000 / 48000 = 576
+        Assertions.assertEquals(576, FrameHeader.getFrameLength(0xFFFDA464));
+    }
+
+    @Test
+    public void getFrameLengthTest_invalidHeaders_expectInvalid() {
+        // no sync
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFF1B9064));
+        // reserved MPEG version
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFEB9064));
+        // reserved layer
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFF99064));
+        // CRC protected
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFFA9064));
+        // free bitrate
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFFB0064));
+        // bad bitrate
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFFBF064));
+        // reserved sampling rate
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFFB9C64));
+        // reserved emphasis
+        Assertions.assertEquals(FrameHeader.INVALID, FrameHeader.getFrameLength(0xFFFB9066));
+    }
+}
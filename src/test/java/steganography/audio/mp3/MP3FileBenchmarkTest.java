@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Benchmark of the frame search on a tagged 10 MB file (2 MB of album art and about 8 MB of frames).
+ * It takes a while, so it only runs if the system property benchmark is true:<br>
+ * mvn test -Dtest=MP3FileBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class MP3FileBenchmarkTest {
+    private static final int FRAME_COUNT = 20000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 15;
+
+    private final byte[] taggedFile = MP3FileTest.createTaggedFile(2 * 1024 * 1024, FRAME_COUNT, 8);
+
+    @Test
+    public void findAllFrames_tagged10MBFile_legacy() {
+        // the search of the first versions stops once all bytes up to the end are modifiable
+        benchmark(MP3File.ScanMode.LEGACY, 1);
+    }
+
+    @Test
+    public void findAllFrames_tagged10MBFile_frameData() {
+        benchmark(MP3File.ScanMode.FRAME_DATA, 1);
+    }
+
+    @Test
+    public void findAllFrames_tagged10MBFile_frameDataParallel() {
+        benchmark(MP3File.ScanMode.FRAME_DATA, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Test
+    public void findAllFrames_tagged10MBFile_mainData() {
+        benchmark(MP3File.ScanMode.MAIN_DATA, 1);
+    }
+
+    /**
+     * Searches the frames of the tagged file with a new MP3File for every run and prints the median
+     * and the fastest of the measured runs.
+     */
+    private void benchmark(MP3File.ScanMode scanMode, int nThreads) {
+        long[] durations = new long[MEASURED_RUNS];
+        int framesFound = 0;
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            MP3File mp3File = new MP3File(ByteBuffer.wrap(this.taggedFile), scanMode);
+            Assertions.assertTrue(mp3File.findAllFrames(nThreads));
+            long duration = System.nanoTime() - start;
+
+            framesFound = mp3File.getFrameCount();
+            if (scanMode != MP3File.ScanMode.LEGACY)
+                Assertions.assertEquals(FRAME_COUNT, framesFound);
+            if (run >= 0)
+                durations[run] = duration;
+        }
+
+        Arrays.sort(durations);
+        System.out.printf("%s with %d thread(s): %d frames in %d bytes, median %.2f ms, fastest %.2f ms%n",
+                scanMode, nThreads, framesFound, this.taggedFile.length,
+                durations[MEASURED_RUNS / 2] / 1e6, durations[0] / 1e6);
+    }
+}
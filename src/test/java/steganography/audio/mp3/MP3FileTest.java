@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.mp3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MP3FileTest {
+
+    /**
+     * Creates frames of an MPEG 1 Layer III file with 128 kbps at 44100 Hz (417 bytes, 418 if padded).
+     * Every third frame is padded.
+     */
+    public static byte[] createFrames(int frameCount, long seed) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int frame = 0; frame < frameCount; frame++) {
+            boolean padded = frame % 3 == 0;
+            int length = 417 + (padded ? 1 : 0);
+            out.write(0xFF);
+            out.write(0xFB);
+            out.write(0x90 | (padded ? 0x02 : 0));
+            out.write(0x64);
+            for (int i = 4; i < length; i++) {
+                out.write(random.nextInt(256));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates an MP3 file with an ID3v2 tag of the given size (filled with random bytes, e.g. album art)
+     * in front of the frames and an ID3v1 tag after them.
+     */
+    static byte[] createTaggedFile(int tagSize, int frameCount, long seed) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // ID3v2.3 header with syncsafe size
+        out.write('I');
+        out.write('D');
+        out.write('3');
+        out.write(3);
+        out.write(0);
+        out.write(0);
+        out.write((tagSize >> 21) & 0x7F);
+        out.write((tagSize >> 14) & 0x7F);
+        out.write((tagSize >> 7) & 0x7F);
+        out.write(tagSize & 0x7F);
+        byte[] tag = new byte[tagSize];
+        random.nextBytes(tag);
+        out.write(tag, 0, tag.length);
+
+        byte[] frames = createFrames(frameCount, seed);
+        out.write(frames, 0, frames.length);
+
+        // ID3v1 tag
+        out.write('T');
+        out.write('A');
+        out.write('G');
+        out.write(new byte[125], 0, 125);
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates an MP3File searched using ScanMode.FRAME_DATA.
+     */
+    private static MP3File frameDataFile(byte[] bytes) {
+        return new MP3File(ByteBuffer.wrap(bytes), MP3File.ScanMode.FRAME_DATA);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                                  findAllFrames()
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void findAllFramesTest_noMP3_expectFalse() {
+        MP3File mp3File = new MP3File(new byte[] {0, 10, 25, -13, -111, 127});
+
+        Assertions.assertFalse(mp3File.findAllFrames());
+        Assertions.assertThrows(IllegalArgumentException.class, mp3File::getModifiableCount);
+    }
+
+    @Test
+    public void findAllFramesTest_validFrames_expectFrameStartsAndLengths() {
+        MP3File mp3File = frameDataFile(createFrames(10, 1));
+
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(10, mp3File.getFrameCount());
+
+        int expectedStart = 0;
+        for (int frame = 0; frame < mp3File.getFrameCount(); frame++) {
+            Assertions.assertEquals(expectedStart, mp3File.getFrameStart(frame));
+            Assertions.assertEquals(frame % 3 == 0 ? 418 : 417, mp3File.getFrameLength(frame));
+            expectedStart += mp3File.getFrameLength(frame);
+        }
+    }
+
+    @Test
+    public void findAllFramesTest_taggedFile_expectAllFramesAfterTag() {
+        int tagSize = 5000;
+        MP3File mp3File = frameDataFile(createTaggedFile(tagSize, 20, 5));
+
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(20, mp3File.getFrameCount());
+        Assertions.assertEquals(10 + tagSize, mp3File.getFrameStart(0));
+    }
+
+    @Test
+    public void findAllFramesTest_junkBetweenFrames_expectFramesAroundJunk() {
+        byte[] frames = createFrames(10, 6);
+        byte[] junk = new byte[] {(byte) 0xFF, (byte) 0xFF, 0, 1, 2, (byte) 0xFF, (byte) 0xE0, 3};
+        byte[] bytes = new byte[frames.length + junk.length];
+        // junk after the first five frames (5 * 417 + 2 padding bytes)
+        int junkStart = 5 * 417 + 2;
+        System.arraycopy(frames, 0, bytes, 0, junkStart);
+        System.arraycopy(junk, 0, bytes, junkStart, junk.length);
+        System.arraycopy(frames, junkStart, bytes, junkStart + junk.length, frames.length - junkStart);
+
+        MP3File mp3File = frameDataFile(bytes);
+
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(10, mp3File.getFrameCount());
+        Assertions.assertEquals(junkStart + junk.length, mp3File.getFrameStart(5));
+    }
+
+    @Test
+    public void findAllFramesTest_xingFrame_expectNoModifiableBytesInFirstFrame() {
+        byte[] bytes = createFrames(10, 7);
+        // Xing header after 32 bytes of side information (MPEG 1, stereo)
+        System.arraycopy("Xing".getBytes(), 0, bytes, 4 + 32, 4);
+
+        MP3File mp3File = frameDataFile(bytes);
+
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(10, mp3File.getFrameCount());
+        Assertions.assertEquals(mp3File.getFrameDataStart(1), mp3File.getModifiablePosition(0));
+    }
+
+    @Test
+    public void findAllFramesTest_legacy_expectXingFrameModifiableAndLastFrameNotFound() {
+        byte[] bytes = createFrames(10, 7);
+        System.arraycopy("Xing".getBytes(), 0, bytes, 4 + 32, 4);
+        // no frame sync in the data of the last frame (after 9 frames, 3 of them padded)
+        int lastFrame = 9 * 417 + 3;
+        Arrays.fill(bytes, lastFrame + 4, bytes.length, (byte) 0);
+
+        MP3File mp3File = new MP3File(bytes);
+
+        Assertions.assertEquals(MP3File.ScanMode.LEGACY, mp3File.getScanMode());
+        Assertions.assertTrue(mp3File.findAllFrames());
+        // a frame is only found together with the frame sync after it
+        Assertions.assertEquals(9, mp3File.getFrameCount());
+        Assertions.assertEquals(4, mp3File.getModifiablePosition(0));
+        Assertions.assertEquals(lastFrame - 9 * 4, mp3File.getModifiableCount());
+    }
+
+    @Test
+    public void findAllFramesTest_legacyJunkBetweenFrames_expectJunkModifiable() {
+        byte[] frames = createFrames(10, 17);
+        byte[] junk = new byte[] {0, 1, 2, 3, 4};
+        byte[] bytes = new byte[frames.length + junk.length];
+        int junkStart = 5 * 417 + 2;
+        System.arraycopy(frames, 0, bytes, 0, junkStart);
+        System.arraycopy(junk, 0, bytes, junkStart, junk.length);
+        System.arraycopy(frames, junkStart, bytes, junkStart + junk.length, frames.length - junkStart);
+
+        MP3File mp3File = new MP3File(bytes);
+        Assertions.assertTrue(mp3File.findAllFrames());
+
+        // bytes between frames are modifiable, the header of the next frame is not
+        int index = junkStart - 5 * 4;
+        for (int i = 0; i < junk.length; i++) {
+            Assertions.assertEquals(junkStart + i, mp3File.getModifiablePosition(index + i));
+        }
+        Assertions.assertEquals(junkStart + junk.length + 4, mp3File.getModifiablePosition(index + junk.length));
+    }
+
+    @Test
+    public void findAllFramesTest_parallel_expectSameFramesAsSequential() {
+        // frames with a large tag in front and junk in between, split into several chunks
+        byte[] frames = createTaggedFile(1500 * 1024, 12000, 9);
+        byte[] bytes = new byte[frames.length + 3];
+        int junkStart = frames.length / 2 - frames.length / 2 % 417;
+        System.arraycopy(frames, 0, bytes, 0, junkStart);
+        bytes[junkStart] = (byte) 0xFF;
+        bytes[junkStart + 1] = (byte) 0xFB;
+        System.arraycopy(frames, junkStart, bytes, junkStart + 3, frames.length - junkStart);
+
+        MP3File sequential = frameDataFile(bytes);
+        MP3File parallel = frameDataFile(bytes);
+        Assertions.assertTrue(sequential.findAllFrames(1));
+        Assertions.assertTrue(parallel.findAllFrames(4));
+
+        Assertions.assertEquals(sequential.getFrameCount(), parallel.getFrameCount());
+        for (int frame = 0; frame < sequential.getFrameCount(); frame++) {
+            Assertions.assertEquals(sequential.getFrameStart(frame), parallel.getFrameStart(frame));
+            Assertions.assertEquals(sequential.getFrameLength(frame), parallel.getFrameLength(frame));
+            Assertions.assertEquals(sequential.getFrameDataStart(frame), parallel.getFrameDataStart(frame));
+        }
+        Assertions.assertEquals(sequential.getModifiableCount(), parallel.getModifiableCount());
+    }
+
+    @Test
+    public void findAllFramesTest_mainDataOnly_expectSideInformationNotModifiable() {
+        MP3File mp3File = new MP3File(ByteBuffer.wrap(createFrames(10, 13)), MP3File.ScanMode.MAIN_DATA);
+
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(10, mp3File.getFrameCount());
+        for (int frame = 0; frame < mp3File.getFrameCount(); frame++) {
+            // header and 32 bytes of side information (MPEG 1, joint stereo)
+            Assertions.assertEquals(mp3File.getFrameStart(frame) + 4 + 32, mp3File.getFrameDataStart(frame));
+        }
+    }
+
+    @Test
+    public void findAllFramesTest_crcProtectedFrames_expectFramesOnlyIfMainDataOnly() {
+        byte[] bytes = createFrames(10, 14);
+        int position = 0;
+        for (int frame = 0; frame < 10; frame++) {
+            // clear protection bit: frame is followed by a 2 byte checksum
+            bytes[position + 1] = (byte) 0xFA;
+            position += frame % 3 == 0 ? 418 : 417;
+        }
+
+        Assertions.assertFalse(frameDataFile(bytes).findAllFrames());
+
+        MP3File mp3File = new MP3File(ByteBuffer.wrap(bytes), MP3File.ScanMode.MAIN_DATA);
+        Assertions.assertTrue(mp3File.findAllFrames());
+        Assertions.assertEquals(10, mp3File.getFrameCount());
+        // header, checksum and side information
+        Assertions.assertEquals(4 + 2 + 32, mp3File.getFrameDataStart(0));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                               modifiable positions
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void getModifiablePositionTest_validFrames_expectDataBytesInOrderWithoutHeaders() {
+        MP3File mp3File = frameDataFile(createFrames(10, 2));
+        Assertions.assertTrue(mp3File.findAllFrames());
+
+        int index = 0;
+        for (int frame = 0; frame < mp3File.getFrameCount(); frame++) {
+            Assertions.assertEquals(mp3File.getFrameStart(frame) + 4, mp3File.getFrameDataStart(frame));
+            for (int position = mp3File.getFrameDataStart(frame); position < mp3File.getFrameDataEnd(frame); position++) {
+                Assertions.assertEquals(position, mp3File.getModifiablePosition(index++));
+            }
+        }
+        Assertions.assertEquals(index, mp3File.getModifiableCount());
+    }
+
+    @Test
+    public void getModifiablePositionsTest_rangeOverFrames_expectSameAsSinglePositions() {
+        MP3File mp3File = frameDataFile(createFrames(10, 4));
+        Assertions.assertTrue(mp3File.findAllFrames());
+
+        int from = 400;
+        int[] positions = new int[2000];
+        mp3File.getModifiablePositions(from, positions, positions.length);
+
+        for (int i = 0; i < positions.length; i++) {
+            Assertions.assertEquals(mp3File.getModifiablePosition(from + i), positions[i]);
+        }
+    }
+
+    @Test
+    public void getModifiablePositionTest_indexOutOfRange_expectIndexOutOfBoundsException() {
+        MP3File mp3File = frameDataFile(createFrames(5, 3));
+        Assertions.assertTrue(mp3File.findAllFrames());
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mp3File.getModifiablePosition(-1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () ->
+                mp3File.getModifiablePosition(mp3File.getModifiableCount()));
+    }
+}
@@ -26,10 +26,18 @@ import steganography.Steganography;
 import steganography.audio.overlays.MP3Overlays;
 import steganography.util.ByteArrayUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
 
 public class MP3SteganographyTest {
 
@@ -97,4 +105,181 @@ public class MP3SteganographyTest {
         // assert messages are the same
         Assertions.assertEquals(message, decodedMessage);
     }
+
+    @Test
+    public void encodeSimpleStringIntoMappedFile_ExpectSameBytesAsByteArrayAndSameStringAfterDecode()
+            throws IOException, SocialMediaSteganographyException {
+        MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.SHUFFLE_OVERLAY);
+        byte[] mp3Bytes = MP3FileTest.createFrames(50, 9);
+        byte[] messageBytes = "Hello World!".getBytes(StandardCharsets.UTF_8);
+
+        Path carrier = Files.createTempFile("carrier", ".mp3");
+        Path output = Files.createTempFile("encoded", ".mp3");
+        try {
+            Files.write(carrier, mp3Bytes);
+
+            // encode into a copy of the carrier
+            mp3Steganography.encode(carrier, output, messageBytes, 42);
+
+            // carrier stays the same, copy is the same as when encoding the byte array
+            Assertions.assertArrayEquals(mp3Bytes, Files.readAllBytes(carrier));
+            Assertions.assertArrayEquals(mp3Steganography.encode(mp3Bytes.clone(), messageBytes, 42),
+                    Files.readAllBytes(output));
+
+            Assertions.assertArrayEquals(messageBytes, mp3Steganography.decode(output, 42));
+        } finally {
+            Files.deleteIfExists(carrier);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * The heap needed to encode a mapped file with the recommended overlay is bounded: a carrier of 64 MB is
+     * encoded and decoded by a separate JVM with a heap of 32 MB
+     */
+    @Test
+    public void encodeIntoLargeMappedFileWithPermutationOverlay_ExpectHeapBounded()
+            throws IOException, InterruptedException {
+        Path carrier = Files.createTempFile("large", ".mp3");
+        try {
+            // written in parts to keep the heap of this JVM small
+            byte[] frames = MP3FileTest.createFrames(2511, 5);
+            try (OutputStream out = Files.newOutputStream(carrier)) {
+                for (int i = 0; i < 64; i++) {
+                    out.write(frames);
+                }
+            }
+
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            Process process = new ProcessBuilder(java, "-Xmx32m", "-cp", System.getProperty("java.class.path"),
+                    MappedFileEncoder.class.getName(), carrier.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = process.getInputStream().read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+
+            Assertions.assertEquals(0, process.waitFor(), output.toString());
+        } finally {
+            Files.deleteIfExists(carrier);
+        }
+    }
+
+    /**
+     * Encodes a message into the mp3 file given as argument with PERMUTATION_OVERLAY and decodes it again,
+     * run by encodeIntoLargeMappedFileWithPermutationOverlay_ExpectHeapBounded()
+     */
+    public static class MappedFileEncoder {
+        public static void main(String[] args) throws Exception {
+            MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.PERMUTATION_OVERLAY);
+            byte[] messageBytes = "Hello World!".getBytes(StandardCharsets.UTF_8);
+            mp3Steganography.encode(Paths.get(args[0]), messageBytes, 42);
+            if (!Arrays.equals(messageBytes, mp3Steganography.decode(Paths.get(args[0]), 42)))
+                throw new IllegalStateException("Decoded message differs");
+        }
+    }
+
+    /**
+     * Carriers encoded before the frames were searched by scan modes, the one for the shuffle overlay
+     * with an ID3v2 and an ID3v1 tag, the one for the sequence overlay with a Xing frame
+     */
+    @Test
+    public void decodeCarriersOfFirstVersion_ExpectSameString()
+            throws IOException, SocialMediaSteganographyException {
+        String resources = "src/test/resources/steganography/audio/mp3/";
+        byte[] shuffleCarrier = ByteArrayUtils.read(new File(resources + "baselineShuffle.bin"));
+        byte[] sequenceCarrier = ByteArrayUtils.read(new File(resources + "baselineSequenceXing.bin"));
+
+        Assertions.assertEquals("Hidden before the scan modes",
+                new String(new MP3Steganography().decode(shuffleCarrier), StandardCharsets.UTF_8));
+        Assertions.assertEquals("Hidden before the scan modes",
+                new String(this.mp3Steg.decode(sequenceCarrier), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encodeAndDecodeWithMetrics_ExpectFramesAndPayloadLengthsReported()
+            throws IOException, SocialMediaSteganographyException {
+        int[] counts = new int[4];
+        MP3Metrics metrics = new MP3Metrics() {
+            @Override
+            public void framesScanned(int frameCount, int modifiableByteCount, long scanNanos) {
+                counts[0] = frameCount;
+                counts[1] = modifiableByteCount;
+            }
+
+            @Override
+            public void encoded(int payloadLength, long encodeNanos) {
+                counts[2] = payloadLength;
+            }
+
+            @Override
+            public void decoded(int payloadLength, long decodeNanos) {
+                counts[3] = payloadLength;
+            }
+        };
+        MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.PERMUTATION_OVERLAY, metrics);
+        byte[] messageBytes = "Hello World!".getBytes(StandardCharsets.UTF_8);
+
+        byte[] encodedBytes = mp3Steganography.encode(MP3FileTest.createFrames(10, 10), messageBytes);
+        mp3Steganography.decode(encodedBytes);
+
+        Assertions.assertEquals(10, counts[0]);
+        Assertions.assertEquals(10 * 413 + 4, counts[1]);
+        // message and 8 bytes header
+        Assertions.assertEquals(messageBytes.length + 8, counts[2]);
+        Assertions.assertEquals(messageBytes.length, counts[3]);
+    }
+
+    @Test
+    public void encodeSimpleStringIntoStream_ExpectSameBytesAsByteArray()
+            throws IOException, SocialMediaSteganographyException {
+        MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.SEQUENCE_OVERLAY);
+        // tag larger than the buffer of the stream encoder
+        byte[] mp3Bytes = MP3FileTest.createTaggedFile(100 * 1024, 400, 11);
+        byte[] messageBytes = new byte[15000];
+        new Random(11).nextBytes(messageBytes);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        mp3Steganography.encode(new ByteArrayInputStream(mp3Bytes), output, messageBytes);
+
+        Assertions.assertArrayEquals(mp3Steganography.encode(mp3Bytes.clone(), messageBytes), output.toByteArray());
+        Assertions.assertArrayEquals(messageBytes, mp3Steganography.decode(output.toByteArray()));
+    }
+
+    @Test
+    public void encodeStreamWithShuffleOverlay_ExpectUnsupportedOperationException() {
+        MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.SHUFFLE_OVERLAY);
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> mp3Steganography.encode(
+                new ByteArrayInputStream(MP3FileTest.createFrames(10, 12)), new ByteArrayOutputStream(),
+                new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void encodeWithMainDataOverlay_ExpectSideInformationUnchangedAndSameStringAfterDecode()
+            throws IOException, SocialMediaSteganographyException {
+        MP3Steganography mp3Steganography = new MP3Steganography(MP3Overlays.MAIN_DATA_OVERLAY);
+        byte[] mp3Bytes = MP3FileTest.createFrames(20, 15);
+        // fill the capacity completely
+        byte[] messageBytes = new byte[mp3Steganography.getMP3Capacity(mp3Bytes)];
+        new Random(15).nextBytes(messageBytes);
+        // 7 of the frames are padded
+        Assertions.assertEquals((20 * (413 - 32) + 7) / 8 - 8, messageBytes.length);
+
+        byte[] encodedBytes = mp3Steganography.encode(mp3Bytes.clone(), messageBytes);
+
+        MP3File mp3File = new MP3File(ByteBuffer.wrap(mp3Bytes), MP3File.ScanMode.MAIN_DATA);
+        Assertions.assertTrue(mp3File.findAllFrames());
+        for (int frame = 0; frame < mp3File.getFrameCount(); frame++) {
+            int start = mp3File.getFrameStart(frame);
+            // header and side information
+            for (int position = start; position < start + 4 + 32; position++) {
+                Assertions.assertEquals(mp3Bytes[position], encodedBytes[position]);
+            }
+        }
+        Assertions.assertArrayEquals(messageBytes, mp3Steganography.decode(encodedBytes));
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.overlays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.mp3.MP3FileTest;
+
+import java.util.Arrays;
+
+public class MP3PermutationOverlayTest {
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                                getDataByteIndex()
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void getDataByteIndexTest_allPositions_expectEveryDataByteExactlyOnce() throws AudioNotFoundException {
+        MP3PermutationOverlay overlay = new MP3PermutationOverlay(MP3FileTest.createFrames(7, 1), 123);
+
+        boolean[] seen = new boolean[overlay.dataByteCount];
+        for (int position = 0; position < overlay.dataByteCount; position++) {
+            int index = overlay.getDataByteIndex(position);
+            Assertions.assertFalse(seen[index]);
+            seen[index] = true;
+        }
+    }
+
+    @Test
+    public void getDataByteIndexTest_differentSeeds_expectDifferentOrder() throws AudioNotFoundException {
+        byte[] bytes = MP3FileTest.createFrames(5, 2);
+        MP3PermutationOverlay overlay1 = new MP3PermutationOverlay(bytes, 1);
+        MP3PermutationOverlay overlay2 = new MP3PermutationOverlay(bytes, 2);
+        MP3PermutationOverlay overlay3 = new MP3PermutationOverlay(bytes, 1);
+
+        int[] order1 = new int[overlay1.dataByteCount];
+        int[] order2 = new int[overlay1.dataByteCount];
+        int[] order3 = new int[overlay1.dataByteCount];
+        for (int position = 0; position < order1.length; position++) {
+            order1[position] = overlay1.getDataByteIndex(position);
+            order2[position] = overlay2.getDataByteIndex(position);
+            order3[position] = overlay3.getDataByteIndex(position);
+        }
+
+        Assertions.assertFalse(Arrays.equals(order1, order2));
+        Assertions.assertArrayEquals(order1, order3);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                                next() / setBytes()
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void nextTest_batchAndSingleBytes_expectSameBytes() throws AudioNotFoundException {
+        byte[] bytes = MP3FileTest.createFrames(5, 3);
+        AudioOverlay single = new MP3PermutationOverlay(bytes, 7);
+        AudioOverlay batch = new MP3PermutationOverlay(bytes, 7);
+
+        byte[] buffer = new byte[1000];
+        Assertions.assertEquals(buffer.length, batch.next(buffer, 0, buffer.length));
+        for (byte value : buffer) {
+            Assertions.assertEquals(value, single.next());
+        }
+    }
+}
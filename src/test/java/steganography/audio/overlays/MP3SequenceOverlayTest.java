@@ -31,7 +31,7 @@ public class MP3SequenceOverlayTest {
     @Test
     public void sequenceConstructorTest_byteArrayIsNull_expectAudioNotFoundException() {
         Assertions.assertThrows(AudioNotFoundException.class, () ->
-                new MP3SequenceOverlay(null, 0)
+                new MP3SequenceOverlay((byte[]) null, 0)
         );
     }
 
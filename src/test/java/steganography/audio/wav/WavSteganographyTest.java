@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.audio.wav;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import steganography.audio.exception.AudioCapacityException;
+import steganography.audio.exception.AudioNotFoundException;
+import steganography.audio.exception.UnsupportedAudioTypeException;
+import steganography.exceptions.UnknownStegFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class WavSteganographyTest {
+
+    /**
+     * Creates a WAV file with random samples. A LIST chunk of odd length (padded) is written between
+     * the fmt and the data chunk.
+     */
+    static byte[] createWavFile(int format, int bitsPerSample, int channels, int sampleCount, long seed) {
+        int bytesPerSample = bitsPerSample / 8;
+        int dataLength = sampleCount * bytesPerSample;
+        byte[] list = new byte[] {'I', 'N', 'F', 'O', 'x'};
+
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 24 + 8 + list.length + 1 + 8 + dataLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[] {'R', 'I', 'F', 'F'}).putInt(buffer.capacity() - 8).put(new byte[] {'W', 'A', 'V', 'E'});
+        buffer.put(new byte[] {'f', 'm', 't', ' '}).putInt(16)
+                .putShort((short) format)
+                .putShort((short) channels)
+                .putInt(44100)
+                .putInt(44100 * channels * bytesPerSample)
+                .putShort((short) (channels * bytesPerSample))
+                .putShort((short) bitsPerSample);
+        buffer.put(new byte[] {'L', 'I', 'S', 'T'}).putInt(list.length).put(list).put((byte) 0);
+
+        byte[] samples = new byte[dataLength];
+        new Random(seed).nextBytes(samples);
+        buffer.put(new byte[] {'d', 'a', 't', 'a'}).putInt(dataLength).put(samples);
+        return buffer.array();
+    }
+
+    private static byte[] randomMessage(int length) {
+        byte[] message = new byte[length];
+        new Random(length).nextBytes(message);
+        return message;
+    }
+
+    @Test
+    public void encodeIntoSamplesOfEverySize_ExpectSameMessageAfterDecodeAndOnlyLeastSignificantBitsChanged()
+            throws Exception {
+        WavSteganography wavSteganography = new WavSteganography();
+        for (int bitsPerSample : new int[] {8, 16, 24, 32}) {
+            byte[] wavBytes = createWavFile(1, bitsPerSample, 2, 20000, bitsPerSample);
+            byte[] message = randomMessage(wavSteganography.getWavCapacity(wavBytes));
+
+            byte[] encoded = wavSteganography.encode(wavBytes.clone(), message);
+
+            Assertions.assertTrue(wavSteganography.isSteganographicData(encoded));
+            Assertions.assertArrayEquals(message, wavSteganography.decode(encoded));
+
+            WavFile wavFile = new WavFile(wavBytes);
+            int dataStart = wavFile.getDataStart();
+            for (int i = 0; i < wavBytes.length; i++) {
+                boolean leastSignificantByte = i >= dataStart && (i - dataStart) % wavFile.getBytesPerSample() == 0;
+                Assertions.assertEquals(wavBytes[i] & (leastSignificantByte ? ~1 : ~0),
+                        encoded[i] & (leastSignificantByte ? ~1 : ~0));
+            }
+        }
+    }
+
+    @Test
+    public void encodeIntoMappedFile_ExpectSameBytesAsByteArray() throws Exception {
+        WavSteganography wavSteganography = new WavSteganography();
+        byte[] wavBytes = createWavFile(1, 16, 2, 10000, 1);
+        byte[] message = randomMessage(1000);
+
+        Path carrier = Files.createTempFile("carrier", ".wav");
+        Path output = Files.createTempFile("encoded", ".wav");
+        try {
+            Files.write(carrier, wavBytes);
+            wavSteganography.encode(carrier, output, message);
+
+            Assertions.assertArrayEquals(wavBytes, Files.readAllBytes(carrier));
+            Assertions.assertArrayEquals(wavSteganography.encode(wavBytes.clone(), message), Files.readAllBytes(output));
+            Assertions.assertArrayEquals(message, wavSteganography.decode(output));
+        } finally {
+            Files.deleteIfExists(carrier);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void encodeMessageLargerThanCapacity_ExpectAudioCapacityException() throws Exception {
+        WavSteganography wavSteganography = new WavSteganography();
+        byte[] wavBytes = createWavFile(1, 16, 1, 800, 2);
+
+        Assertions.assertEquals(800 / 8 - 8, wavSteganography.getWavCapacity(wavBytes));
+        Assertions.assertThrows(AudioCapacityException.class, () -> wavSteganography.encode(wavBytes, randomMessage(93)));
+    }
+
+    @Test
+    public void decodeWithoutMessage_ExpectUnknownStegFormatException() throws Exception {
+        WavSteganography wavSteganography = new WavSteganography();
+        byte[] wavBytes = createWavFile(1, 16, 2, 1000, 3);
+
+        Assertions.assertFalse(wavSteganography.isSteganographicData(wavBytes));
+        Assertions.assertThrows(UnknownStegFormatException.class, () -> wavSteganography.decode(wavBytes));
+    }
+
+    @Test
+    public void encodeIntoFloatSamplesOrNoWav_ExpectExceptions() {
+        WavSteganography wavSteganography = new WavSteganography();
+
+        // IEEE float
+        Assertions.assertThrows(UnsupportedAudioTypeException.class, () ->
+                wavSteganography.encode(createWavFile(3, 32, 2, 1000, 4), randomMessage(10)));
+        Assertions.assertThrows(AudioNotFoundException.class, () ->
+                wavSteganography.encode(randomMessage(1000), randomMessage(10)));
+    }
+}
@@ -25,6 +25,7 @@ import steganography.exceptions.*;
 import steganography.image.AnimatedGif;
 import steganography.image.exceptions.UnsupportedImageTypeException;
 import steganography.util.ByteArrayUtils;
+import steganography.util.SequenceHeader;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -80,6 +81,18 @@ public class AnimatedGifTest {
 
     }
 
+    @Test
+    public void decode_listedFrameWithoutPayload_IOException() throws IOException, UnsupportedMediaTypeException, MediaNotFoundException, MediaCapacityException, MediaReassemblingException {
+        GIFMakerImageIO maker = new GIFMakerImageIO();
+        byte[][] frames = maker.splitGIF(animatedGif);
+        // the header lists the second frame, which holds no payload
+        byte[] header = new SequenceHeader(SequenceHeader.LAYOUT_SEQUENTIAL, 10, 0, frames.length, new int[]{0, 1})
+                .toBytes();
+        frames[0] = new ImageSteg().encode(frames[0], header);
+
+        Assertions.assertThrows(IOException.class, () -> splicer.decode(maker.sequenzGIF(frames)));
+    }
+
     @Test
     public void decode_NotAGif_UnssupportedImageException() {
         Assertions.assertThrows(UnsupportedImageTypeException.class, () -> splicer.decode(new byte[] {2,3,4,5,6,7}));
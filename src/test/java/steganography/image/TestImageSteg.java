@@ -495,4 +495,118 @@ public class TestImageSteg {
         );
 
     }
+
+    @Test
+    void given_80PixelPNGHalfTransparentNoDefaultHeader_when_getCapacity_expect_5() throws IOException, UnsupportedImageTypeException, NoImageException {
+
+        BufferedImage bufferedImage = new BufferedImage(8, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < bufferedImage.getHeight(); y++) {
+            for (int x = 0; x < bufferedImage.getWidth(); x++) {
+                // every second column fully transparent
+                bufferedImage.setRGB(x, y, (x % 2 == 0) ? 0xff102030 : 0x00102030);
+            }
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", baos);
+
+        Assertions.assertEquals(
+                5,
+                new ImageSteg(false, false).getImageCapacity(
+                        baos.toByteArray()
+                )
+        );
+        Assertions.assertEquals(
+                10,
+                new ImageSteg(false, true).getImageCapacity(
+                        baos.toByteArray()
+                )
+        );
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                          BUFFERED IMAGES
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    void given_BufferedImage_when_encodingInPlace_expect_decodableAsEncodedImage()
+            throws IOException, UnsupportedMediaTypeException, MediaNotFoundException, UnknownStegFormatException,
+            MediaCapacityException {
+        BufferedImage bufferedImage = new BufferedImage(40, 30, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < bufferedImage.getHeight(); y++) {
+            for (int x = 0; x < bufferedImage.getWidth(); x++) {
+                bufferedImage.setRGB(x, y, x * 6 << 16 | y * 8 << 8 | (x + y));
+            }
+        }
+        byte[] payload = "Hallo Welt".getBytes();
+        ImageSteg imageSteg = new ImageSteg();
+
+        Assertions.assertEquals(40 * 30 / 8 - 8, imageSteg.getImageCapacity(bufferedImage));
+        imageSteg.encode(bufferedImage, payload, 4242L);
+
+        Assertions.assertArrayEquals(payload, imageSteg.decode(bufferedImage, 4242L));
+        Assertions.assertTrue(imageSteg.isSteganographicData(bufferedImage, 4242L));
+
+        // same pixel order as for the encoded image
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", baos);
+        Assertions.assertArrayEquals(payload, imageSteg.decode(baos.toByteArray(), 4242L));
+    }
+
+    @Test
+    void given_indexedBufferedImage_when_encodingInPlace_expect_UnsupportedImageTypeException() {
+        BufferedImage bufferedImage = new BufferedImage(8, 10, BufferedImage.TYPE_BYTE_INDEXED);
+
+        Assertions.assertThrows(
+                UnsupportedImageTypeException.class,
+                () -> new ImageSteg().encode(bufferedImage, new byte[1], 1L)
+        );
+    }
+
+    @Test
+    void given_ARGBPixels_when_encodingInPlace_expect_decodableAsEncodedImage()
+            throws IOException, UnsupportedMediaTypeException, MediaNotFoundException, UnknownStegFormatException,
+            MediaCapacityException {
+        int width = 40;
+        int height = 30;
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xFF000000 | i * 97;
+        }
+        // a fully transparent row is not used unless useTransparent is set
+        for (int x = 0; x < width; x++) {
+            argb[x] = 0;
+        }
+        byte[] payload = "Hallo Welt".getBytes();
+        ImageSteg imageSteg = new ImageSteg();
+
+        Assertions.assertEquals(width * (height - 1) / 8 - 8, imageSteg.getImageCapacity(argb, width, height));
+        imageSteg.encode(argb, width, height, payload, 4242L);
+
+        Assertions.assertArrayEquals(payload, imageSteg.decode(argb, width, height, 4242L));
+        Assertions.assertTrue(imageSteg.isSteganographicData(argb, width, height, 4242L));
+
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        bufferedImage.setRGB(0, 0, width, height, argb, 0, width);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", baos);
+        Assertions.assertArrayEquals(payload, imageSteg.decode(baos.toByteArray(), 4242L));
+    }
+
+    @Test
+    void given_tooFewARGBPixels_when_encodingInPlace_expect_IllegalArgumentException() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> new ImageSteg().encode(new int[99], 10, 10, new byte[1], 1L)
+        );
+    }
+
+    @Test
+    void given_imageSize_when_gettingCapacity_expect_capacityOfOpaqueImage() throws UnsupportedImageTypeException {
+        ImageSteg imageSteg = new ImageSteg();
+
+        Assertions.assertEquals(imageSteg.getImageCapacity(new BufferedImage(64, 48, BufferedImage.TYPE_3BYTE_BGR)),
+                imageSteg.getImageCapacity(64, 48));
+        Assertions.assertEquals(64 * 48 / 8, new ImageSteg(false, false).getImageCapacity(64, 48));
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+public class ByteArrayChannelTest {
+
+    @Test
+    void given_writesBeyondCapacity_when_readingBack_expect_sameBytes() throws IOException {
+        ByteArrayChannel channel = new ByteArrayChannel(4);
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        channel.write(ByteBuffer.wrap(bytes, 0, 60));
+        channel.write(ByteBuffer.wrap(bytes, 60, 40));
+        Assertions.assertEquals(100, channel.size());
+        Assertions.assertEquals(100, channel.position());
+
+        ByteBuffer read = ByteBuffer.allocate(100);
+        channel.position(0);
+        Assertions.assertEquals(100, channel.read(read));
+        Assertions.assertEquals(-1, channel.read(read));
+        Assertions.assertArrayEquals(bytes, read.array());
+    }
+
+    @Test
+    void given_seekBackAndBeyondEnd_when_writing_expect_headerPatchedAndGapZeroed() throws IOException {
+        ByteArrayChannel channel = new ByteArrayChannel();
+        channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0, 5, 6}));
+        // patch a header like a muxer does
+        channel.position(0);
+        channel.write(ByteBuffer.wrap(new byte[]{1, 2}));
+        // truncate and write behind the end
+        channel.truncate(3);
+        channel.position(5);
+        channel.write(ByteBuffer.wrap(new byte[]{9}));
+
+        Assertions.assertArrayEquals(new byte[]{1, 2, 0, 0, 0, 9}, channel.toByteArray());
+    }
+
+    @Test
+    void given_closedChannel_when_writing_expect_ClosedChannelException() throws IOException {
+        ByteArrayChannel channel = new ByteArrayChannel();
+        channel.write(ByteBuffer.wrap(new byte[]{7, 8}));
+        channel.close();
+
+        Assertions.assertFalse(channel.isOpen());
+        Assertions.assertThrows(ClosedChannelException.class, () -> channel.write(ByteBuffer.wrap(new byte[1])));
+        // the content is still available
+        Assertions.assertArrayEquals(new byte[]{7, 8}, channel.toByteArray());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import steganography.image.exceptions.ImageCapacityException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ImageSequenceUtilsTest {
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                          SHUFFLE DISTRIBUTION
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static byte[] randomPayload(int length) {
+        byte[] payload = new byte[length];
+        new Random(42).nextBytes(payload);
+        return payload;
+    }
+
+    @Test
+    void given_payloadAndCapacities_when_shuffleDistributionAndReassembly_expect_samePayload()
+            throws ImageCapacityException {
+        CapacityPlan capacityPlan = new CapacityPlan(new int[]{200, 150, 0, 300, 10, 250});
+        byte[] payload = randomPayload(395);
+
+        List<byte[]> chunks = ImageSequenceUtils.shuffleDistribution(capacityPlan, payload, 16);
+        Assertions.assertEquals(capacityPlan.getFrameCount(), chunks.size());
+
+        for (int i = 0; i < chunks.size(); i++) {
+            if (chunks.get(i) != null)
+                Assertions.assertTrue(chunks.get(i).length <= capacityPlan.getFrameCapacity(i));
+        }
+
+        SequenceHeader header = SequenceHeader.read(chunks.get(0));
+        Assertions.assertNotNull(header);
+        Assertions.assertEquals(payload.length, header.getPayloadLength());
+        // images without capacity for a block are not used
+        Assertions.assertNull(chunks.get(2));
+        Assertions.assertNull(chunks.get(4));
+
+        Assertions.assertArrayEquals(payload,
+                ImageSequenceUtils.shuffleReassembly(header, chunks, 0, payload.length));
+    }
+
+    @Test
+    void given_distributedPayload_when_reassemblingRange_expect_onlyDataFramesNeeded()
+            throws ImageCapacityException {
+        CapacityPlan capacityPlan = new CapacityPlan(new int[]{400, 400, 400, 400, 400});
+        byte[] payload = randomPayload(1000);
+
+        List<byte[]> chunks = ImageSequenceUtils.shuffleDistribution(capacityPlan, payload, 64);
+        SequenceHeader header = SequenceHeader.read(chunks.get(0));
+        Assertions.assertNotNull(header);
+
+        int from = 300;
+        int to = 400;
+        int[] needed = header.getDataFrames(from, to);
+        Assertions.assertTrue(needed.length < header.getDataFrames().length);
+
+        // drop every payload that is not needed for the range
+        byte[][] partial = new byte[chunks.size()][];
+        for (int frame : needed) {
+            partial[frame] = chunks.get(frame);
+        }
+
+        Assertions.assertArrayEquals(Arrays.copyOfRange(payload, from, to),
+                ImageSequenceUtils.shuffleReassembly(header, Arrays.asList(partial), from, to));
+    }
+
+    @Test
+    void given_payloadExceedingCapacity_when_shuffleDistribution_expect_ImageCapacityException() {
+        CapacityPlan capacityPlan = new CapacityPlan(new int[]{100, 100, 100});
+
+        Assertions.assertThrows(ImageCapacityException.class, () ->
+                ImageSequenceUtils.shuffleDistribution(capacityPlan, randomPayload(300), 10));
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    //                                          INDEXED DISTRIBUTION
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    void given_payloadAndCapacities_when_indexedDistributionAndReassemble_expect_samePayload()
+            throws ImageCapacityException {
+        CapacityPlan capacityPlan = new CapacityPlan(new int[]{100, 0, 120, 120, 120, 120});
+        byte[] payload = randomPayload(350);
+
+        List<byte[]> chunks = ImageSequenceUtils.indexedDistribution(capacityPlan, payload);
+        SequenceHeader header = SequenceHeader.read(chunks.get(0));
+        Assertions.assertNotNull(header);
+        Assertions.assertEquals(SequenceHeader.LAYOUT_SEQUENTIAL, header.getLayout());
+        // the payload fills up the images one after another, the last image is not needed
+        Assertions.assertArrayEquals(new int[]{0, 2, 3, 4}, header.getDataFrames());
+        Assertions.assertNull(chunks.get(5));
+
+        Assertions.assertArrayEquals(payload, ImageSequenceUtils.reassemble(header, chunks));
+    }
+
+    @Test
+    void given_payloadFillingCapacityWithoutHeader_when_indexedDistribution_expect_ImageCapacityException() {
+        CapacityPlan capacityPlan = new CapacityPlan(new int[]{100, 100});
+
+        Assertions.assertThrows(ImageCapacityException.class, () ->
+                ImageSequenceUtils.indexedDistribution(capacityPlan, randomPayload(200)));
+    }
+
+    @Test
+    void given_SequenceHeader_when_writingAndReading_expect_sameValues() {
+        SequenceHeader header = new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, 1234, 32, 19, new int[]{0, 3, 8, 18});
+
+        byte[] bytes = header.toBytes();
+        Assertions.assertEquals(SequenceHeader.length(19), bytes.length);
+
+        SequenceHeader read = SequenceHeader.read(bytes);
+        Assertions.assertNotNull(read);
+        Assertions.assertEquals(SequenceHeader.LAYOUT_STRIPED, read.getLayout());
+        Assertions.assertEquals(1234, read.getPayloadLength());
+        Assertions.assertEquals(32, read.getBlockSize());
+        Assertions.assertEquals(19, read.getFrameCount());
+        Assertions.assertArrayEquals(new int[]{0, 3, 8, 18}, read.getDataFrames());
+    }
+
+    @Test
+    void given_payloadWithoutSignature_when_readingSequenceHeader_expect_null() {
+        Assertions.assertNull(SequenceHeader.read(randomPayload(64)));
+    }
+
+    @Test
+    void given_hugeFrameCount_when_readingSequenceHeader_expect_null() {
+        byte[] bytes = new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, 10, 4, 4, new int[]{0, 1}).toBytes();
+        // frame count is at offset 13, + 7 overflows
+        ByteBuffer.wrap(bytes).putInt(13, Integer.MAX_VALUE);
+
+        Assertions.assertNull(SequenceHeader.read(bytes));
+    }
+
+    @Test
+    void given_unknownLayout_when_readingSequenceHeader_expect_null() {
+        byte[] bytes = new SequenceHeader((byte) 3, 10, 4, 4, new int[]{0, 1}).toBytes();
+
+        Assertions.assertNull(SequenceHeader.read(bytes));
+    }
+
+    @Test
+    void given_stripedLayoutWithoutBlockSize_when_readingSequenceHeader_expect_null() {
+        byte[] bytes = new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, 10, 0, 4, new int[]{0, 1}).toBytes();
+
+        Assertions.assertNull(SequenceHeader.read(bytes));
+    }
+
+    @Test
+    void given_payloadWithoutDataFrames_when_readingSequenceHeader_expect_null() {
+        byte[] bytes = new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, 10, 4, 4, new int[0]).toBytes();
+
+        Assertions.assertNull(SequenceHeader.read(bytes));
+        // an empty payload needs no image
+        bytes = new SequenceHeader(SequenceHeader.LAYOUT_STRIPED, 0, 4, 4, new int[0]).toBytes();
+        Assertions.assertNotNull(SequenceHeader.read(bytes));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.video;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import steganography.util.ByteArrayUtils;
+import steganography.video.exceptions.UnsupportedVideoTypeException;
+import steganography.video.exceptions.VideoNotFoundException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The results of FFprobe are cached by the content of the Video (see Video#probe())
+ */
+public class VideoProbeCacheTest {
+    private final File ffmpegBin = new File("src/main/resources");
+    private final File carrier = new File("src/test/java/steganography/video/resources/Carrier.mp4");
+
+    @BeforeEach
+    public void clearCache() {
+        Video.clearProbeCache();
+    }
+
+    /**
+     * The same Video is probed once, its metadata is the same when it is read from the cache
+     */
+    @Test
+    public void sameCarrierTwice_expectOneProbe() throws IOException, VideoNotFoundException, UnsupportedVideoTypeException {
+        byte[] data = ByteArrayUtils.read(carrier);
+        int probes = Video.getProbeCount();
+
+        Video first = new Video(data, ffmpegBin);
+        Video second = new Video(data.clone(), ffmpegBin);
+
+        Assertions.assertEquals(first.toString(), second.toString());
+        Assertions.assertEquals(first.getTimebase(), second.getTimebase());
+        //The packets are counted by the same probe
+        Assertions.assertTrue(first.getPacketCount() > 0);
+        Assertions.assertEquals(first.getPacketCount(), second.getPacketCount());
+        Assertions.assertEquals(probes + 1, Video.getProbeCount());
+    }
+
+    /**
+     * After 16 other Videos, the first one is no longer cached
+     */
+    @Test
+    public void sixteenOtherCarriers_expectFirstEvicted() throws IOException, VideoNotFoundException, UnsupportedVideoTypeException {
+        byte[] data = ByteArrayUtils.read(carrier);
+        int probes = Video.getProbeCount();
+        new Video(data, ffmpegBin);
+
+        //Trailing bytes make a different carrier with the same streams
+        for (int i = 1; i <= 16; i++) {
+            new Video(Arrays.copyOf(data, data.length + i), ffmpegBin);
+        }
+        Assertions.assertEquals(probes + 17, Video.getProbeCount());
+
+        //The last one is still cached, the first one was evicted
+        new Video(Arrays.copyOf(data, data.length + 16), ffmpegBin);
+        Assertions.assertEquals(probes + 17, Video.getProbeCount());
+        new Video(data, ffmpegBin);
+        Assertions.assertEquals(probes + 18, Video.getProbeCount());
+    }
+}
@@ -18,8 +18,14 @@
 
 package steganography.video.integration;
 
+import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.PipeInput;
+import com.github.kokorin.jaffree.ffmpeg.PipeOutput;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import steganography.exceptions.MediaCapacityException;
+import steganography.exceptions.MediaNotFoundException;
+import steganography.exceptions.UnsupportedMediaTypeException;
 import steganography.image.exceptions.ImageCapacityException;
 import steganography.image.exceptions.ImageWritingException;
 import steganography.image.exceptions.NoImageException;
@@ -239,6 +245,107 @@ public class VideoStegTest {
         }
     }
 
+    /**
+     * Multi Thread Test
+     * Frames are encoded while the Video is decoded
+     */
+    @Test
+    public void encoderIntegrationPipelinedTest() {
+        try {
+            VideoSteg videoSteg = new VideoSteg();
+            videoSteg.setDebug(true);
+            ImageIO.setUseCache(false);
+            videoSteg.setPipelined(true);
+            videoSteg.setMaxEncodingThreads(4);
+            videoSteg.setMaxDecodingThreads(4);
+            byte[] encodedVideo = videoSteg.encode(ByteArrayUtils.read(carrier), payload, 87143654783654L);
+            Assertions.assertNotNull(encodedVideo);
+            Assertions.assertTrue(ByteArrayUtils.read(carrier).length < encodedVideo.length);
+
+            byte[] decodedPayload = videoSteg.decode(encodedVideo, 87143654783654L);
+
+            Assertions.assertTrue(Arrays.equals(payload, decodedPayload));
+        } catch (IOException | UnsupportedImageTypeException | NoImageException | ImageWritingException | ImageCapacityException | VideoCapacityException | VideoNotFoundException | UnsupportedVideoTypeException e) {
+            e.printStackTrace();
+            Assertions.fail("Video could ne be read");
+        }
+    }
+
+    /**
+     * Multi Thread Test
+     * Only the frames needed for the payload are decoded and embedded
+     */
+    @Test
+    public void encoderIntegrationPassThroughTest() {
+        try {
+            VideoSteg videoSteg = new VideoSteg();
+            videoSteg.setDebug(true);
+            videoSteg.setPassThrough(true);
+            videoSteg.setMaxEncodingThreads(4);
+            videoSteg.setMaxDecodingThreads(4);
+            byte[] encodedVideo = videoSteg.encode(ByteArrayUtils.read(carrier), payload, 87143654783654L);
+            Assertions.assertNotNull(encodedVideo);
+
+            byte[] decodedPayload = videoSteg.decode(encodedVideo, 87143654783654L);
+
+            Assertions.assertTrue(Arrays.equals(payload, decodedPayload));
+        } catch (IOException | UnsupportedImageTypeException | NoImageException | ImageWritingException | ImageCapacityException | VideoCapacityException | VideoNotFoundException | UnsupportedVideoTypeException e) {
+            e.printStackTrace();
+            Assertions.fail("Video could ne be read");
+        }
+    }
+
+    /**
+     * Multi Thread Test
+     * Matroska doesn't state the number of frames, so they are decoded first instead of using the pipeline
+     */
+    @Test
+    public void encoderIntegrationPassThroughWithoutFrameCountTest() throws IOException, UnsupportedImageTypeException,
+            NoImageException, ImageWritingException, ImageCapacityException, VideoCapacityException,
+            VideoNotFoundException, UnsupportedVideoTypeException {
+        File ffmpegBin = new File("src/main/resources");
+        ByteArrayOutputStream matroska = new ByteArrayOutputStream();
+        FFmpeg.atPath(ffmpegBin.toPath())
+                .addInput(PipeInput.pumpFrom(new ByteArrayInputStream(ByteArrayUtils.read(carrier))))
+                .addOutput(PipeOutput.pumpTo(matroska)
+                        .setFormat("matroska")
+                        .addArguments("-c", "copy"))
+                .setOverwriteOutput(true)
+                .execute();
+        Video video = new Video(matroska.toByteArray(), ffmpegBin);
+        Assertions.assertEquals(0, video.getFrameCount());
+        Assertions.assertFalse(video.hasExactFrameCount());
+
+        VideoSteg videoSteg = new VideoSteg();
+        videoSteg.setPassThrough(true);
+        videoSteg.setMaxEncodingThreads(4);
+        byte[] encodedVideo = videoSteg.encode(matroska.toByteArray(), payload, 87143654783654L);
+        Assertions.assertNotNull(encodedVideo);
+
+        byte[] decodedPayload = videoSteg.decode(encodedVideo, 87143654783654L);
+
+        Assertions.assertArrayEquals(payload, decodedPayload);
+    }
+
+    /**
+     * Check if an encoded Video is recognized by its first frame and the carrier is not
+     * Good Test
+     */
+    @Test
+    public void isSteganographicDataIntegrationTest() {
+        try {
+            VideoSteg videoSteg = new VideoSteg();
+            videoSteg.setPassThrough(true);
+            byte[] encodedVideo = videoSteg.encode(ByteArrayUtils.read(carrier), payload, 87143654783654L);
+
+            Assertions.assertTrue(videoSteg.isSteganographicData(encodedVideo, 87143654783654L));
+            Assertions.assertFalse(videoSteg.isSteganographicData(ByteArrayUtils.read(carrier), 87143654783654L));
+        } catch (IOException | MediaNotFoundException | UnsupportedMediaTypeException | MediaCapacityException | ImageWritingException e) {
+            e.printStackTrace();
+            Assertions.fail("Video could ne be read");
+        }
+    }
+
     /**
      * Try to encode a Large Payload in the carrier
      * Rand Test
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020
+ * Contributed by NAME HERE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package steganography.video.unit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import steganography.video.encoders.FramePool;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+public class FramePoolTest {
+
+    /**
+     * Released images are handed out again instead of creating new ones
+     */
+    @Test
+    public void acquireReleasedImage() throws InterruptedException {
+        FramePool framePool = new FramePool(32, 24, 2);
+
+        BufferedImage first = framePool.acquire();
+        BufferedImage second = framePool.acquire();
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(2, framePool.getCreatedImages());
+
+        framePool.release(first);
+        Assertions.assertSame(first, framePool.acquire());
+        Assertions.assertEquals(2, framePool.getCreatedImages());
+    }
+
+    /**
+     * No more images are created than allowed, acquiring waits until one is released
+     */
+    @Test
+    public void acquireWhileAllImagesInUse() throws InterruptedException {
+        FramePool framePool = new FramePool(32, 24, 1);
+
+        BufferedImage image = framePool.acquire();
+        Assertions.assertNull(framePool.acquire(10, TimeUnit.MILLISECONDS));
+        Assertions.assertEquals(1, framePool.getCreatedImages());
+
+        framePool.release(image);
+        Assertions.assertSame(image, framePool.acquire(10, TimeUnit.MILLISECONDS));
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            framePool.release(image);
+            framePool.release(image);
+        });
+    }
+
+    /**
+     * The pixel data of an image is a raw bgr24 frame
+     */
+    @Test
+    public void pixelDataIsRawFrame() throws InterruptedException {
+        FramePool framePool = new FramePool(32, 24, 1);
+        BufferedImage image = framePool.acquire();
+        byte[] data = FramePool.getData(image);
+
+        Assertions.assertEquals(32 * 24 * 3, framePool.getFrameSize());
+        Assertions.assertEquals(framePool.getFrameSize(), data.length);
+
+        // blue, green, red of the second pixel
+        data[3] = 0x11;
+        data[4] = 0x22;
+        data[5] = 0x33;
+        Assertions.assertEquals(0x332211, image.getRGB(1, 0) & 0xFFFFFF);
+    }
+
+    /**
+     * Images of another size can't be released to the pool
+     */
+    @Test
+    public void releaseForeignImage() {
+        FramePool framePool = new FramePool(32, 24, 1);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                framePool.release(new BufferedImage(24, 32, BufferedImage.TYPE_3BYTE_BGR)));
+    }
+}